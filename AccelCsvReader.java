@@ -0,0 +1,238 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reader of right-wrist-accelxyz.csv files (lines "t,x,y,z") into a {@link SampleBuffer}.
+ * The file is memory-mapped and commas/newlines are scanned at the byte level. Numbers are
+ * parsed without intermediate Strings: up to 18 significant digits are accumulated in a long
+ * and converted with one exact multiplication or division when the mantissa fits in 53 bits and
+ * the power of ten is at most 22 (Clinger), otherwise with the Eisel-Lemire algorithm over a
+ * table of 128-bit powers of ten. Both are correctly rounded, i.e. give the same result as
+ * Double.parseDouble, which remains the fallback for the rare inputs neither path can decide.
+ */
+public class AccelCsvReader {
+
+    private static final int COLUMNS = 4;
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] EXACT_POW10 = new double[23];
+
+    // 128-bit mantissas of 10^e, rounded down, for e in [POW10_MIN_EXP, POW10_MAX_EXP]
+    private static final int POW10_MIN_EXP = -348;
+    private static final int POW10_MAX_EXP = 347;
+    private static final long[] POW10_HI = new long[POW10_MAX_EXP - POW10_MIN_EXP + 1];
+    private static final long[] POW10_LO = new long[POW10_MAX_EXP - POW10_MIN_EXP + 1];
+
+    static {
+        EXACT_POW10[0] = 1;
+        for (int i = 1; i < EXACT_POW10.length; i++)
+            EXACT_POW10[i] = EXACT_POW10[i - 1] * 10;
+
+        for (int e = POW10_MIN_EXP; e <= POW10_MAX_EXP; e++) {
+            BigInteger v;
+            if (e >= 0) {
+                v = BigInteger.TEN.pow(e);
+            } else {
+                BigInteger d = BigInteger.TEN.pow(-e);
+                v = BigInteger.ONE.shiftLeft(129 + d.bitLength()).divide(d);
+            }
+            int shift = v.bitLength() - 128;
+            v = shift >= 0 ? v.shiftRight(shift) : v.shiftLeft(-shift);
+            POW10_HI[e - POW10_MIN_EXP] = v.shiftRight(64).longValue();
+            POW10_LO[e - POW10_MIN_EXP] = v.longValue();
+        }
+    }
+
+    private AccelCsvReader() {
+    }
+
+    public static SampleBuffer read(String fileName) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+             FileChannel channel = file.getChannel()) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE)
+                throw new IOException("File too large: " + fileName);
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+
+            // a line is at least "0,0,0,0\n"; ~60 bytes per line is typical
+            SampleBuffer samples = new SampleBuffer((int) (length / 48));
+            parse(buf, (int) length, samples, fileName);
+            return samples;
+        }
+    }
+
+    /*
+    * Lines with more than COLUMNS fields keep the first COLUMNS, as the original split(",") reader
+    * did; empty lines are skipped and a line with fewer fields is an IOException naming its line
+    * */
+    private static void parse(MappedByteBuffer buf, int length, SampleBuffer samples, String fileName)
+            throws IOException {
+        double[] row = new double[COLUMNS];
+        int column = 0;
+        int fieldStart = 0;
+        int line = 1;
+
+        for (int i = 0; i < length; i++) {
+            byte c = buf.get(i);
+            if (c == ',' || c == '\n') {
+                int end = fieldEnd(buf, fieldStart, i);
+                if (c == '\n' && column == 0 && end == fieldStart) { // empty line
+                    fieldStart = i + 1;
+                    line++;
+                    continue;
+                }
+                if (column < COLUMNS)
+                    row[column] = parseNumber(buf, fieldStart, end);
+                column++;
+                fieldStart = i + 1;
+                if (c == '\n') {
+                    addRow(samples, row, column, line, fileName);
+                    column = 0;
+                    line++;
+                }
+            }
+        }
+        int end = fieldEnd(buf, fieldStart, length);
+        if (column > 0 || end > fieldStart) {
+            if (column < COLUMNS)
+                row[column] = parseNumber(buf, fieldStart, end);
+            addRow(samples, row, column + 1, line, fileName);
+        }
+    }
+
+    private static void addRow(SampleBuffer samples, double[] row, int fields, int line, String fileName)
+            throws IOException {
+        if (fields < COLUMNS)
+            throw new IOException("Expected " + COLUMNS + " fields, got " + fields + " at line " + line + " of " + fileName);
+        samples.add((long) row[0], row[1], row[2], row[3]);
+    }
+
+    private static int fieldEnd(MappedByteBuffer buf, int start, int end) {
+        while (end > start && buf.get(end - 1) == '\r')
+            end--;
+        return end;
+    }
+
+    static double parseNumber(MappedByteBuffer buf, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+            negative = buf.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exp10 = 0;
+        boolean any = false;
+        for (; i < end && buf.get(i) >= '0' && buf.get(i) <= '9'; i++) {
+            any = true;
+            if (digits > 0 || buf.get(i) != '0') {
+                if (digits == 18) return slowParse(buf, start, end);
+                mantissa = mantissa * 10 + (buf.get(i) - '0');
+                digits++;
+            }
+        }
+        if (i < end && buf.get(i) == '.') {
+            i++;
+            for (; i < end && buf.get(i) >= '0' && buf.get(i) <= '9'; i++) {
+                any = true;
+                if (digits > 0 || buf.get(i) != '0') {
+                    if (digits == 18) return slowParse(buf, start, end);
+                    mantissa = mantissa * 10 + (buf.get(i) - '0');
+                    digits++;
+                }
+                exp10--;
+            }
+        }
+        if (!any) return slowParse(buf, start, end);
+        if (i < end && (buf.get(i) == 'e' || buf.get(i) == 'E')) {
+            i++;
+            boolean negativeExp = false;
+            if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+                negativeExp = buf.get(i) == '-';
+                i++;
+            }
+            int e = 0;
+            int expStart = i;
+            for (; i < end && buf.get(i) >= '0' && buf.get(i) <= '9' && e < 10000; i++)
+                e = e * 10 + (buf.get(i) - '0');
+            if (i == expStart) return slowParse(buf, start, end);
+            exp10 += negativeExp ? -e : e;
+        }
+        if (i != end)
+            return slowParse(buf, start, end);
+
+        double value;
+        if (mantissa == 0)
+            value = 0;
+        else if (mantissa <= MAX_EXACT_MANTISSA && exp10 >= 0 && exp10 < EXACT_POW10.length)
+            value = mantissa * EXACT_POW10[exp10];
+        else if (mantissa <= MAX_EXACT_MANTISSA && exp10 < 0 && -exp10 < EXACT_POW10.length)
+            value = mantissa / EXACT_POW10[-exp10];
+        else if (Double.isNaN(value = eiselLemire(mantissa, exp10)))
+            return slowParse(buf, start, end);
+        return negative ? -value : value;
+    }
+
+    /*
+    * Correctly rounded mantissa * 10^exp10 for 0 < mantissa < 2^63, or NaN when the
+    * result cannot be decided this way (halfway cases, subnormals, overflow)
+    * */
+    private static double eiselLemire(long mantissa, int exp10) {
+        if (exp10 < POW10_MIN_EXP || exp10 > POW10_MAX_EXP)
+            return Double.NaN;
+
+        int clz = Long.numberOfLeadingZeros(mantissa);
+        long man = mantissa << clz;
+        long retExp2 = ((217706L * exp10) >> 16) + 64 + 1023 - clz;
+
+        int idx = exp10 - POW10_MIN_EXP;
+        long xHi = unsignedMultiplyHigh(man, POW10_HI[idx]);
+        long xLo = man * POW10_HI[idx];
+
+        if ((xHi & 0x1FF) == 0x1FF && Long.compareUnsigned(xLo + man, man) < 0) {
+            long yHi = unsignedMultiplyHigh(man, POW10_LO[idx]);
+            long yLo = man * POW10_LO[idx];
+            long mergedHi = xHi;
+            long mergedLo = xLo + yHi;
+            if (Long.compareUnsigned(mergedLo, xLo) < 0)
+                mergedHi++;
+            if ((mergedHi & 0x1FF) == 0x1FF && mergedLo + 1 == 0 && Long.compareUnsigned(yLo + man, man) < 0)
+                return Double.NaN;
+            xHi = mergedHi;
+            xLo = mergedLo;
+        }
+
+        long msb = xHi >>> 63;
+        long retMantissa = xHi >>> (msb + 9);
+        retExp2 -= 1 ^ msb;
+
+        if (xLo == 0 && (xHi & 0x1FF) == 0 && (retMantissa & 3) == 1)
+            return Double.NaN;
+
+        retMantissa += retMantissa & 1;
+        retMantissa >>>= 1;
+        if ((retMantissa >>> 53) > 0) {
+            retMantissa >>>= 1;
+            retExp2++;
+        }
+        if (retExp2 <= 0 || retExp2 >= 0x7FF)
+            return Double.NaN;
+        return Double.longBitsToDouble((retExp2 << 52) | (retMantissa & 0x000FFFFFFFFFFFFFL));
+    }
+
+    private static long unsignedMultiplyHigh(long a, long b) {
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+
+    private static double slowParse(MappedByteBuffer buf, int start, int end) {
+        byte[] b = new byte[end - start];
+        for (int i = start; i < end; i++)
+            b[i - start] = buf.get(i);
+        return Double.parseDouble(new String(b, StandardCharsets.ISO_8859_1).trim());
+    }
+}
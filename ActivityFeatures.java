@@ -1,123 +1,339 @@
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Created by nsaleheen on 9/14/2017.
  */
 public class ActivityFeatures {
+
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+
     public static void doProcess(String dir, String featureFileName, int windowSize) {
+        doProcess(dir, featureFileName, windowSize, windowSize);
+    }
 
-        for (String label : Config.EXTRASENSORY_labels_Simple) {
-            String labelDir = dir + label;
-            System.out.println(label);
-            File dataFolders = new File(labelDir);
-            int cnt = 0;
-            int maxCnt = 5000;
-            if ("LOW".equals(Config.EXTRASENSORY_labelMap.get(label)))
-                maxCnt = 1000;
-
-            for (File dataFolder : dataFolders.listFiles()) {
-                if (!dataFolder.isDirectory()) continue;
-
-                if (cnt>= maxCnt) break;
-                cnt++;
-                List<double[]> txyz = parseDataFileTXYZ(labelDir + "\\" + dataFolder.getName() + "\\right-wrist-accelxyz.csv");
-//                if (label.endsWith("_MODEL"))
-//                    computeFeatures(txyz, featureFileName, windowSize, label.substring(0, label.length() - 6), Config.ADL_labelMap.get(label));
-//                else
-                computeFeatures(txyz, featureFileName, windowSize, label, Config.EXTRASENSORY_labelMap.get(label));
+    /*
+    * hopSize = time between window starts; hopSize < windowSize gives overlapping windows
+    * */
+    public static void doProcess(String dir, String featureFileName, int windowSize, int hopSize) {
+        doProcess(dir, featureFileName, windowSize, hopSize, 1);
+    }
+
+    /*
+    * Extracts the recordings concurrently on a fork-join pool with the given parallelism.
+    * The recordings (at most maxCnt per label) are selected before any work starts and their
+    * feature rows are written in selection order, so the feature file is the same as with
+    * parallelism 1. At most IN_FLIGHT_PER_THREAD recordings per thread wait to be written.
+    * */
+    public static void doProcess(String dir, String featureFileName, int windowSize, int hopSize, int parallelism) {
+        doProcess(dir, featureFileName, windowSize, hopSize, parallelism, FeaturePlan.defaultPlan());
+    }
+
+    /*
+    * Writes the features of the plan, in plan order (see FeaturePlan.header). With
+    * Config.FEATURE_CACHE_DIR set, recordings whose features are in the FeatureCache are not
+    * read at all and newly computed feature blocks are added to it. With
+    * Config.COLLECT_FEATURE_STATISTICS, the FeatureStatistics of all rows are written next to the file.
+    * */
+    public static void doProcess(String dir, String featureFileName, final int windowSize, final int hopSize, int parallelism,
+                                 final FeaturePlan plan) {
+        List<Recording> recordings = listRecordings(dir);
+        final FeatureStatistics statistics = Config.COLLECT_FEATURE_STATISTICS ? new FeatureStatistics(plan) : null;
+
+        try (FeatureWriter out = new FeatureWriter(featureFileName);
+             final FeatureCache cache = openCache()) {
+            run(recordings, parallelism, new FeatureWriter[]{out}, new RecordingTask() {
+                @Override
+                public FeatureBlock[] format(Recording recording, FeatureRowFormatter[] rows) {
+                    FeatureBlock[] blocks = extract(recording, new int[]{windowSize}, new int[]{hopSize}, plan, cache);
+                    blocks[0].appendTo(rows[0], "", recording.label, recording.activityLabel);
+                    return blocks;
+                }
+
+                @Override
+                public void written(FeatureBlock[] blocks) {
+                    if (statistics != null)
+                        statistics.add(blocks[0]);
+                }
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (statistics != null)
+            statistics.write(featureFileName + Config.STATISTICS_FILE_SUFFIX);
+    }
+
+    /*
+    * Window size sweep: every recording is read once and its samples are fed to one tumbling window
+    * per size in the same pass. With oneFile all rows go to featureFileName with a leading
+    * windowSize column, otherwise each size gets its own file (sweepFileName). The headers are
+    * written here; the files are appended to, as with doProcess.
+    * */
+    public static void doSweep(String dir, String featureFileName, final int[] windowSizes, final boolean oneFile,
+                               int parallelism, final FeaturePlan plan) {
+        List<Recording> recordings = listRecordings(dir);
+
+        FeatureWriter[] outs = new FeatureWriter[oneFile ? 1 : windowSizes.length];
+        try (final FeatureCache cache = openCache()) {
+            try {
+                for (int i = 0; i < outs.length; i++) {
+                    String fileName = oneFile ? featureFileName : sweepFileName(featureFileName, windowSizes[i]);
+                    Config.fileWrite(fileName, oneFile ? "windowSize," + plan.header() : plan.header());
+                    outs[i] = new FeatureWriter(fileName);
+                }
+                run(recordings, parallelism, outs, new RecordingTask() {
+                    @Override
+                    public FeatureBlock[] format(Recording recording, FeatureRowFormatter[] rows) {
+                        FeatureBlock[] blocks = extract(recording, windowSizes, windowSizes, plan, cache);
+                        for (int i = 0; i < blocks.length; i++) {
+                            if (oneFile)
+                                blocks[i].appendTo(rows[0], windowSizes[i] + ",", recording.label, recording.activityLabel);
+                            else
+                                blocks[i].appendTo(rows[i], "", recording.label, recording.activityLabel);
+                        }
+                        return blocks;
+                    }
+                });
+            } finally {
+                for (FeatureWriter out : outs) {
+                    if (out != null)
+                        out.close();
+                }
             }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
-    private static void computeFeatures(List<double[]> txyz, String featureFileName, int windowSize, String label, String activityLabel) {
+    /*
+    * "features.csv" -> "features_w10000.csv"
+    * */
+    public static String sweepFileName(String featureFileName, int windowSize) {
+        int dot = featureFileName.lastIndexOf('.');
+        if (dot <= Math.max(featureFileName.lastIndexOf('\\'), featureFileName.lastIndexOf('/')))
+            return featureFileName + "_w" + windowSize;
+        return featureFileName.substring(0, dot) + "_w" + windowSize + featureFileName.substring(dot);
+    }
 
-        List<double[]> subList = new ArrayList<>();
+    private static FeatureCache openCache() throws IOException {
+        if (Config.FEATURE_CACHE_DIR == null)
+            return null;
+        return FeatureCache.open(Config.FEATURE_CACHE_DIR, Config.FEATURE_CACHE_MAX_BYTES);
+    }
 
-        for (int i = 0; i < txyz.size(); i++) {
-            subList.add(txyz.get(i));
-            if (txyz.get(i)[0] - subList.get(0)[0] >= windowSize) {
-                double[] f = doFeatureCalculations(subList);
-                printFeatures(featureFileName, subList.get(0)[0], f, label, activityLabel);
-                subList = new ArrayList<>();
-            }
+    private interface RecordingTask {
+        /*
+        * rows[i] receives the rows for outs[i]; returns the feature blocks the rows came from.
+        * Runs on the worker threads, in any order
+        * */
+        FeatureBlock[] format(Recording recording, FeatureRowFormatter[] rows);
+
+        /*
+        * Called with the blocks of each recording once its rows are written, on the calling
+        * thread and in recording order, so results folded here do not depend on the parallelism
+        * */
+        default void written(FeatureBlock[] blocks) {
         }
     }
 
-    private static void printFeatures(String featureFileName, double time, double[] f, String label, String activityLabel) {
-        String str = f[0] + "";
-        for (int i = 1; i < f.length; i++)
-            str = str + "," + f[i];
-        str = str + "," + label + "," + activityLabel;
+    private static class Formatted {
+        final FeatureRowFormatter[] rows;
+        final FeatureBlock[] blocks;
 
-        Config.fileWrite(featureFileName, str);
+        Formatted(FeatureRowFormatter[] rows, FeatureBlock[] blocks) {
+            this.rows = rows;
+            this.blocks = blocks;
+        }
     }
 
     /*
-    *
+    * Runs the task for every recording, concurrently on a fork-join pool when parallelism > 1,
+    * and writes the rows in recording order
     * */
-    private static double[] doFeatureCalculations(List<double[]> data) {
+    private static void run(List<Recording> recordings, int parallelism, FeatureWriter[] outs, final RecordingTask task)
+            throws IOException {
+        if (parallelism <= 1) {
+            FeatureRowFormatter[] rows = newRows(outs.length);
+            for (Recording recording : recordings) {
+                for (FeatureRowFormatter r : rows)
+                    r.reset();
+                FeatureBlock[] blocks = task.format(recording, rows);
+                write(outs, rows);
+                task.written(blocks);
+            }
+            return;
+        }
 
-        double[] t = new double[data.size()];
-        double[] x = new double[data.size()];
-        double[] y = new double[data.size()];
-        double[] z = new double[data.size()];
+        final int outputs = outs.length;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Deque<ForkJoinTask<Formatted>> pending = new ArrayDeque<>();
+            int next = 0;
+            while (next < recordings.size() || !pending.isEmpty()) {
+                while (next < recordings.size() && pending.size() < parallelism * IN_FLIGHT_PER_THREAD) {
+                    final Recording recording = recordings.get(next++);
+                    pending.add(pool.submit(() -> {
+                        FeatureRowFormatter[] rows = newRows(outputs);
+                        return new Formatted(rows, task.format(recording, rows));
+                    }));
+                }
+                Formatted formatted = pending.poll().join();
+                write(outs, formatted.rows);
+                task.written(formatted.blocks);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static FeatureRowFormatter[] newRows(int n) {
+        FeatureRowFormatter[] rows = new FeatureRowFormatter[n];
+        for (int i = 0; i < n; i++)
+            rows[i] = new FeatureRowFormatter();
+        return rows;
+    }
 
-        double[] mag = new double[data.size()];
+    private static void write(FeatureWriter[] outs, FeatureRowFormatter[] rows) throws IOException {
+        for (int i = 0; i < outs.length; i++)
+            outs[i].write(rows[i]);
+    }
 
-        for (int i = 0; i < data.size(); i++) {
-            double[] val = data.get(i);
-            mag[i] = magnitude(val[1], val[2], val[3]);
+    private static class Recording {
+        final String dataDir;
+        final String label;
+        final String activityLabel;
 
-            t[i] = val[0];
-            x[i] = val[1];
-            y[i] = val[2];
-            z[i] = val[3];
+        Recording(String dataDir, String label, String activityLabel) {
+            this.dataDir = dataDir;
+            this.label = label;
+            this.activityLabel = activityLabel;
         }
+    }
 
-        double mean = StatisticsMathUtil.avg(mag);
-        double median = StatisticsMathUtil.median(mag);
-        double sd = StatisticsMathUtil.stdev(mag);
-        double sd_x = StatisticsMathUtil.stdev(x);
-        double sd_y = StatisticsMathUtil.stdev(y);
-        double sd_z = StatisticsMathUtil.stdev(z);
-        double skew = StatisticsMathUtil.skew(mag);
-        double kurt = StatisticsMathUtil.kurt(mag);
-        double rateOfChange = getRateOfChange(t, mag);
+    /*
+    * Up to RecordingSampler.quota(label) recordings per label, sampled uniformly and reproducibly
+    * (Config.RECORDING_SAMPLE_SEED)
+    * */
+    private static List<Recording> listRecordings(String dir) {
+        List<Recording> recordings = new ArrayList<>();
+        RecordingSampler sampler = new RecordingSampler(Config.RECORDING_SAMPLE_SEED);
 
-        return new double[]{mean, median, sd, sd_x, sd_y, sd_z, skew, kurt, rateOfChange};
+        for (String label : Config.EXTRASENSORY_labels_Simple) {
+            String labelDir = dir + label;
+            System.out.println(label);
+            List<String> dataFolders;
+            try {
+                dataFolders = sampler.sample(labelDir, label, RecordingSampler.quota(label));
+            } catch (IOException e) {
+                e.printStackTrace();
+                continue;
+            }
+
+            for (String dataFolder : dataFolders) {
+                String dataDir = labelDir + "\\" + dataFolder + "\\";
+//                if (label.endsWith("_MODEL"))
+//                    recordings.add(new Recording(dataDir, label.substring(0, label.length() - 6), Config.ADL_labelMap.get(label)));
+//                else
+                recordings.add(new Recording(dataDir, label, Config.EXTRASENSORY_labelMap.get(label)));
+            }
+        }
+        return recordings;
     }
 
-    private static double getRateOfChange(double[] t, double[] data) {
-        double roc = 0;
-        for (int i = 1; i < data.length; i++)
-            roc += ((data[i] - data[i - 1]) / (t[i] - t[i - 1]));
-        return roc / (data.length - 1);
+    /*
+    * Feature blocks of the recording for each (windowSize, hopSize) pair. Blocks found in the
+    * cache are used as they are; the others are computed in one pass over the samples, which are
+    * only read when at least one block is missing.
+    * */
+    private static FeatureBlock[] extract(Recording recording, int[] windowSizes, int[] hopSizes, FeaturePlan plan,
+                                          FeatureCache cache) {
+        int n = windowSizes.length;
+        File dataFile = dataFile(recording.dataDir);
+        String[] keys = new String[n];
+        FeatureBlock[] blocks = new FeatureBlock[n];
+        boolean missing = false;
+        for (int i = 0; i < n; i++) {
+            if (cache != null) {
+                try {
+                    keys[i] = cache.key(dataFile, windowSizes[i], hopSizes[i], plan.signature());
+                    blocks[i] = cache.get(keys[i]);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            missing |= blocks[i] == null;
+        }
+        if (!missing)
+            return blocks;
+
+        computeFeatures(readDataTXYZ(dataFile), windowSizes, hopSizes, plan, blocks);
+        for (int i = 0; i < n; i++) {
+            if (keys[i] != null && cache != null) {
+                try {
+                    cache.put(keys[i], blocks[i]);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return blocks;
+    }
+
+    /*
+    * Fills the null entries of blocks; the samples are pushed to all their streams in a single pass
+    * */
+    private static void computeFeatures(SampleBuffer samples, int[] windowSizes, int[] hopSizes, FeaturePlan plan,
+                                        FeatureBlock[] blocks) {
+        List<FeatureStream> streams = new ArrayList<>();
+        for (int i = 0; i < blocks.length; i++) {
+            if (blocks[i] != null) continue;
+            final FeatureBlock block = new FeatureBlock(plan.getFeatures().size());
+            blocks[i] = block;
+            streams.add(new FeatureStream(windowSizes[i], hopSizes[i], plan, new FeatureStream.Listener() {
+                @Override
+                public void onFeatures(long startTime, long endTime, double[] features, String activityLabel) {
+                    block.add(features);
+                }
+            }));
+        }
+
+        long[] t = samples.getT();
+        double[] x = samples.getX();
+        double[] y = samples.getY();
+        double[] z = samples.getZ();
+        for (int i = 0; i < samples.size(); i++) {
+            for (int s = 0; s < streams.size(); s++)
+                streams.get(s).onSample(t[i], x[i], y[i], z[i]);
+        }
     }
 
-    private static double magnitude(double x, double y, double z) {
-        return Math.sqrt(x * x + y * y + z * z);
+    /*
+    * The binary columnar file when the converter wrote one, the csv file otherwise. When both
+    * exist (a later conversion wrote the other format) the newer one is used
+    * */
+    private static File dataFile(String dataDir) {
+        File binFile = new File(dataDir + BinaryStreamWriter.FILE_NAME);
+        File csvFile = new File(dataDir + "right-wrist-accelxyz.csv");
+        if (binFile.exists() && (!csvFile.exists() || binFile.lastModified() >= csvFile.lastModified()))
+            return binFile;
+        return csvFile;
     }
 
-    private static List<double[]> parseDataFileTXYZ(String filename) {
-        List<double[]> txyz = new ArrayList<>();
+    private static SampleBuffer readDataTXYZ(File dataFile) {
         try {
-            Scanner in = new Scanner(new File(filename));
-            while (in.hasNext()) {
-                String line = in.nextLine();
-                String[] toks = line.split(",");
-                double[] val = new double[]{Double.parseDouble(toks[0]), Double.parseDouble(toks[1]), Double.parseDouble(toks[2]), Double.parseDouble(toks[3])};
-                txyz.add(val);
-
-            }
-        } catch (FileNotFoundException e) {
+            if (dataFile.getPath().endsWith(BinaryStreamWriter.FILE_NAME))
+                return BinaryStreamReader.read(dataFile.getPath());
+            return AccelCsvReader.read(dataFile.getPath());
+        } catch (IOException e) {
             e.printStackTrace();
         }
-        return txyz;
+        return new SampleBuffer();
     }
 
-
 }
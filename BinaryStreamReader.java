@@ -0,0 +1,82 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory-mapped reader of the binary columnar format written by {@link BinaryStreamWriter}.
+ * The column blocks are copied straight into a {@link SampleBuffer} without any text parsing.
+ */
+public class BinaryStreamReader {
+
+    private BinaryStreamReader() {
+    }
+
+    public static SampleBuffer read(String fileName) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+             FileChannel channel = file.getChannel()) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buf.remaining() < 12 || buf.getInt() != BinaryStreamWriter.MAGIC)
+                throw new IOException("Not a stream-processor binary file: " + fileName);
+            int version = buf.getInt();
+            if (version != BinaryStreamWriter.VERSION)
+                throw new IOException("Unsupported binary stream version " + version + ": " + fileName);
+            int blockSize = buf.getInt();
+
+            SampleBuffer samples = new SampleBuffer(blockSize);
+            while (buf.hasRemaining())
+                readBlock(buf, samples, fileName);
+            return samples;
+        }
+    }
+
+    /*
+    * Checks every length against what is left of the file, so a truncated file fails with an
+    * IOException instead of a BufferUnderflowException
+    * */
+    private static void readBlock(MappedByteBuffer buf, SampleBuffer samples, String fileName) throws IOException {
+        if (buf.remaining() < 4)
+            throw new IOException("Truncated block header in " + fileName);
+        int count = buf.getInt();
+        // a timestamp, count - 1 deltas of at least one byte and three columns of doubles
+        if (count < 1 || buf.remaining() < 8 + (count - 1) + 24L * count)
+            throw new IOException("Truncated or corrupt block of " + count + " samples in " + fileName);
+        int size = samples.size();
+        samples.ensureCapacity(size + count);
+        long[] t = samples.getT();
+        double[] x = samples.getX();
+        double[] y = samples.getY();
+        double[] z = samples.getZ();
+
+        long time = buf.getLong();
+        t[size] = time;
+        for (int i = 1; i < count; i++) {
+            time += readVarLong(buf, fileName);
+            t[size + i] = time;
+        }
+        if (buf.remaining() < 24L * count)
+            throw new IOException("Truncated block of " + count + " samples in " + fileName);
+        buf.asDoubleBuffer().get(x, size, count);
+        buf.position(buf.position() + count * 8);
+        buf.asDoubleBuffer().get(y, size, count);
+        buf.position(buf.position() + count * 8);
+        buf.asDoubleBuffer().get(z, size, count);
+        buf.position(buf.position() + count * 8);
+        samples.setSize(size + count);
+    }
+
+    private static long readVarLong(MappedByteBuffer buf, String fileName) throws IOException {
+        long zigzag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (!buf.hasRemaining() || shift > 63)
+                throw new IOException("Truncated or corrupt timestamp in " + fileName);
+            b = buf.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
@@ -0,0 +1,88 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes one converted recording in the compact binary columnar format
+ * (right-wrist-accelxyz.bin), read back by {@link BinaryStreamReader}.
+ *
+ * Layout (big endian):
+ * <pre>
+ * header : int MAGIC, int VERSION, int BLOCK_SIZE
+ * block  : int count
+ *          long first timestamp, then count-1 timestamp deltas as zig-zag varints
+ *          double x[count], double y[count], double z[count]
+ * </pre>
+ * Samples are written in blocks of at most BLOCK_SIZE, so only one block is held in memory.
+ * Timestamps are stored as whole milliseconds, as in the CSV output.
+ */
+public class BinaryStreamWriter implements SampleWriter {
+
+    public static final String FILE_NAME = "right-wrist-accelxyz.bin";
+
+    static final int MAGIC = 0x53504231; // "SPB1"
+    static final int VERSION = 1;
+    static final int BLOCK_SIZE = 4096;
+
+    private final DataOutputStream out;
+
+    private final long[] t = new long[BLOCK_SIZE];
+    private final double[] x = new double[BLOCK_SIZE];
+    private final double[] y = new double[BLOCK_SIZE];
+    private final double[] z = new double[BLOCK_SIZE];
+    private int count = 0;
+
+    /*
+    * dir = output directory of one recording, must already exist
+    * */
+    public BinaryStreamWriter(String dir) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dir + FILE_NAME), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(BLOCK_SIZE);
+    }
+
+    @Override
+    public void write(double time, double xv, double yv, double zv) throws IOException {
+        t[count] = (int) time;
+        x[count] = xv;
+        y[count] = yv;
+        z[count] = zv;
+        if (++count == BLOCK_SIZE)
+            writeBlock();
+    }
+
+    private void writeBlock() throws IOException {
+        out.writeInt(count);
+        out.writeLong(t[0]);
+        for (int i = 1; i < count; i++)
+            writeVarLong(t[i] - t[i - 1]);
+        for (int i = 0; i < count; i++)
+            out.writeDouble(x[i]);
+        for (int i = 0; i < count; i++)
+            out.writeDouble(y[i]);
+        for (int i = 0; i < count; i++)
+            out.writeDouble(z[i]);
+        count = 0;
+    }
+
+    private void writeVarLong(long v) throws IOException {
+        long zigzag = (v << 1) ^ (v >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (count > 0)
+                writeBlock();
+        } finally {
+            out.close();
+        }
+    }
+}
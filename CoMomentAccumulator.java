@@ -0,0 +1,102 @@
+/**
+ * Mergeable accumulator of paired values: count, both means, both M2 and the co-moment
+ * C = sum of (x - meanX) * (y - meanY). Online updates and merge (Chan et al. / Pebay) as
+ * MomentAccumulator. A pair is skipped when either value is missing (StatisticsMathUtil.MISSG),
+ * as StatisticsMathUtil.covariance does.
+ */
+public class CoMomentAccumulator {
+
+    private long n = 0;
+    private double meanX = 0;
+    private double meanY = 0;
+    private double m2X = 0;
+    private double m2Y = 0;
+    private double c2 = 0;
+
+    public void add(double x, double y) {
+        if (x == StatisticsMathUtil.MISSG || y == StatisticsMathUtil.MISSG)
+            return;
+        n++;
+        double dx = x - meanX;
+        double dy = y - meanY;
+        meanX += dx / n;
+        meanY += dy / n;
+        m2X += dx * (x - meanX);
+        m2Y += dy * (y - meanY);
+        c2 += dx * (y - meanY);
+    }
+
+    public void addAll(double[] x, double[] y, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            add(x[i], y[i]);
+    }
+
+    public void merge(CoMomentAccumulator other) {
+        if (other.n == 0)
+            return;
+        if (n == 0) {
+            n = other.n;
+            meanX = other.meanX;
+            meanY = other.meanY;
+            m2X = other.m2X;
+            m2Y = other.m2Y;
+            c2 = other.c2;
+            return;
+        }
+
+        double na = n;
+        double nb = other.n;
+        double nt = na + nb;
+        double dx = other.meanX - meanX;
+        double dy = other.meanY - meanY;
+        double f = na * nb / nt;
+
+        m2X += other.m2X + dx * dx * f;
+        m2Y += other.m2Y + dy * dy * f;
+        c2 += other.c2 + dx * dy * f;
+        meanX += dx * nb / nt;
+        meanY += dy * nb / nt;
+        n += other.n;
+    }
+
+    public void clear() {
+        n = 0;
+        meanX = meanY = m2X = m2Y = c2 = 0;
+    }
+
+    public long getCount() {
+        return n;
+    }
+
+    public double getMeanX() {
+        return meanX;
+    }
+
+    public double getMeanY() {
+        return meanY;
+    }
+
+    public double getCoMoment() {
+        return c2;
+    }
+
+    /*
+    * Population covariance (divided by n), as StatisticsMathUtil.covariance; MISSG when empty
+    * */
+    public double getCovariance() {
+        if (n == 0)
+            return StatisticsMathUtil.MISSG;
+        return c2 / n;
+    }
+
+    /*
+    * Pearson correlation c2 / sqrt(m2X * m2Y); MISSG below two pairs or for a constant variable.
+    * StatisticsMathUtil.correlation divides the population covariance by sample deviations,
+    * i.e. returns (n - 1) / n times this
+    * */
+    public double getCorrelation() {
+        if (n < 2 || m2X == 0 || m2Y == 0)
+            return StatisticsMathUtil.MISSG;
+        return c2 / Math.sqrt(m2X * m2Y);
+    }
+}
@@ -132,6 +132,66 @@ public class Config {
 
     public static Map<String, String> ADL_labelMap = createMap();
 
+    /*
+    * number of recordings sampled per label (RecordingSampler), by the label's EXTRASENSORY_labelMap class;
+    * labels of classes missing here get DEFAULT_RECORDING_QUOTA
+    * */
+    public static Map<String, Integer> createQuotaMap() {
+        Map<String, Integer> myMap = new HashMap<String, Integer>();
+        myMap.put(NO_ACT, 5000);
+        myMap.put(LOW, 1000);
+        myMap.put(MOD, 5000);
+        myMap.put(HIGH, 5000);
+        return myMap;
+    }
+
+    public static Map<String, Integer> EXTRASENSORY_recordingQuota = createQuotaMap();
+    public static int DEFAULT_RECORDING_QUOTA = 5000;
+    public static long RECORDING_SAMPLE_SEED = 20170914L;
+
+    /*
+    * raw HMP recordings are sampled at 32hz, the stream-processor like data at 16hz
+    * */
+    public static int HMP_SAMPLING_RATE = 32;
+    public static int STREAM_SAMPLING_RATE = 16;
+
+    /*
+    * true = the converter writes right-wrist-accelxyz.bin (BinaryStreamWriter) instead of the csv files
+    * */
+    public static boolean WRITE_BINARY_STREAM = false;
+
+    /*
+    * true = the converter skips recordings that are unchanged since the last run (ConversionManifest)
+    * */
+    public static boolean INCREMENTAL_CONVERSION = false;
+
+    /*
+    * true = window magnitudes and moments use the jdk.incubator.vector kernels (MomentKernels) when
+    * they are available, i.e. vector/VectorMomentKernels.java is compiled and the JVM runs with
+    * --add-modules jdk.incubator.vector; scalar kernels otherwise
+    * */
+    public static boolean USE_VECTOR_KERNELS = false;
+
+    /*
+    * significant digits of the feature values in the feature files; FeatureRowFormatter.SHORTEST (0)
+    * writes them as Double.toString does (full precision), 1..17 rounds them (half up); up to about
+    * 15 digits this formats faster
+    * */
+    public static int FEATURE_DIGITS = FeatureRowFormatter.SHORTEST;
+
+    /*
+    * directory of the on-disk feature cache (FeatureCache), null = no cache; LRU eviction above the size limit
+    * */
+    public static String FEATURE_CACHE_DIR = null;
+    public static long FEATURE_CACHE_MAX_BYTES = 1L << 30;
+
+    /*
+    * true = doProcess also writes per-feature count, mean, sd and approximate quantiles
+    * (FeatureStatistics) to featureFileName + STATISTICS_FILE_SUFFIX
+    * */
+    public static boolean COLLECT_FEATURE_STATISTICS = false;
+    public static String STATISTICS_FILE_SUFFIX = ".stats.csv";
+
     public static void fileWrite(String filename, String text) {
 
         try {
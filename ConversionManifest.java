@@ -0,0 +1,179 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Manifest of an incremental conversion, stored as conversion-manifest.tsv in the output directory.
+ * The first line holds the converter parameters, then one line per converted source file:
+ * key, size, last modified time and SHA-256 of the content.
+ * A recording is up to date when the parameters are unchanged, its output directory exists and the
+ * source has the recorded size and mtime, or the recorded hash when only the mtime moved.
+ * The manifest is saved every SAVE_INTERVAL recorded conversions, so an interrupted run keeps
+ * most of its progress.
+ */
+public class ConversionManifest {
+
+    public static final String FILE_NAME = "conversion-manifest.tsv";
+
+    private static final String PARAMS = "params";
+    private static final int SAVE_INTERVAL = 64;
+
+    private final String fileName;
+    private final String params;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // hashes isUpToDate computed for sources that turned out to be changed, reused by record
+    private final Map<String, Entry> checked = new ConcurrentHashMap<>();
+    private int unsaved = 0;
+
+    private static class Entry {
+        final long size;
+        final long lastModified;
+        final String hash;
+
+        Entry(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+
+    private ConversionManifest(String fileName, String params) {
+        this.fileName = fileName;
+        this.params = params;
+    }
+
+    /*
+    * Loads the manifest of outDir; entries written with other parameters are dropped
+    * */
+    public static ConversionManifest load(String outDir, String params) {
+        ConversionManifest manifest = new ConversionManifest(outDir + FILE_NAME, params);
+        File file = new File(manifest.fileName);
+        if (!file.exists()) return manifest;
+
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String line = in.readLine();
+            if (line == null || !line.equals(PARAMS + "\t" + params))
+                return manifest;
+            while ((line = in.readLine()) != null) {
+                String[] toks = line.split("\t");
+                if (toks.length != 4) continue;
+                manifest.entries.put(toks[0], new Entry(Long.parseLong(toks[1]), Long.parseLong(toks[2]), toks[3]));
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Ignoring unreadable manifest " + file + ": " + e.getMessage());
+            manifest.entries.clear();
+        }
+        return manifest;
+    }
+
+    public boolean isUpToDate(String key, File source, File output) {
+        Entry entry = entries.get(key);
+        if (entry == null || !output.isDirectory() || entry.size != source.length())
+            return false;
+        long lastModified = source.lastModified();
+        if (entry.lastModified == lastModified)
+            return true;
+
+        try {
+            String hash = hash(source);
+            if (!hash.equals(entry.hash)) {
+                checked.put(key, new Entry(entry.size, lastModified, hash));
+                return false;
+            }
+            entries.put(key, new Entry(entry.size, lastModified, hash));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /*
+    * Hash of source computed by isUpToDate, if the source has not changed since; null otherwise,
+    * and the caller hashes the source while converting it (newDigest)
+    * */
+    public String knownHash(String key, File source) {
+        Entry entry = checked.remove(key);
+        if (entry == null || entry.size != source.length() || entry.lastModified != source.lastModified())
+            return null;
+        return entry.hash;
+    }
+
+    /*
+    * Records the converted source with size and mtime taken before it was read, and its content hash
+    * */
+    public void record(String key, long size, long lastModified, String hash) throws IOException {
+        entries.put(key, new Entry(size, lastModified, hash));
+        boolean save;
+        synchronized (this) {
+            save = ++unsaved >= SAVE_INTERVAL;
+        }
+        if (save)
+            save();
+    }
+
+    /*
+    * Drops the entries of sources that are no longer listed
+    * */
+    public void retain(Collection<String> keys) {
+        Set<String> live = new HashSet<>(keys);
+        entries.keySet().retainAll(live);
+    }
+
+    /*
+    * Writes the manifest to a temp file and renames it over the old one
+    * */
+    public synchronized void save() throws IOException {
+        unsaved = 0;
+        File file = new File(fileName);
+        File tmp = new File(fileName + ".tmp");
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(tmp))) {
+            out.write(PARAMS + "\t" + params + "\n");
+            for (Map.Entry<String, Entry> e : new TreeMap<>(entries).entrySet()) {
+                Entry entry = e.getValue();
+                out.write(e.getKey() + "\t" + entry.size + "\t" + entry.lastModified + "\t" + entry.hash + "\n");
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hash(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buf = new byte[1 << 16];
+        try (InputStream in = new FileInputStream(file)) {
+            int n;
+            while ((n = in.read(buf)) > 0)
+                digest.update(buf, 0, n);
+        }
+        return toHex(digest);
+    }
+
+    public static String toHex(MessageDigest digest) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest())
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        return sb.toString();
+    }
+}
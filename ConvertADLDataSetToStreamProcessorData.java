@@ -1,22 +1,96 @@
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by sakther on 9/13/2017.
  */
 public class ConvertADLDataSetToStreamProcessorData {
 
+    // suffixes of the staging and replaced recording directories of an incremental conversion;
+    // the feature extraction skips directories with these names
+    public static final String STAGING_SUFFIX = ".tmp";
+    public static final String REPLACED_SUFFIX = ".old";
+
     /*
     * inDir = input directory -- ADL dataset
     * outDir = output directory -- stream-processor like data
     * */
     public static void doConvert(String inDir, String outDir) {
+        doConvert(inDir, outDir, 1);
+    }
+
+    /*
+    * Converts the recordings concurrently on a fork-join pool with the given parallelism.
+    * Recordings are handed out largest file first so that a big file picked up late does
+    * not leave a long tail. Each recording has its own output directory, so the output is
+    * identical to the sequential doConvert(inDir, outDir).
+    *
+    * With Config.INCREMENTAL_CONVERSION the recordings recorded as unchanged in the manifest
+    * of outDir are skipped and the others are rewritten through a temp directory + rename.
+    * */
+    public static void doConvert(String inDir, String outDir, int parallelism) {
+        final List<Recording> recordings = listRecordings(inDir, outDir);
+        final ConversionManifest manifest = Config.INCREMENTAL_CONVERSION
+                ? ConversionManifest.load(outDir, conversionParams()) : null;
+        if (manifest != null) {
+            List<String> keys = new ArrayList<>();
+            for (Recording recording : recordings)
+                keys.add(recording.key);
+            manifest.retain(keys);
+        }
 
+        if (parallelism <= 1) {
+            for (Recording recording : recordings)
+                convertRecording(recording, manifest);
+        } else {
+            recordings.sort((a, b) -> Long.compare(b.size, a.size));
+            final AtomicInteger next = new AtomicInteger();
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                List<ForkJoinTask<?>> workers = new ArrayList<>();
+                for (int i = 0; i < parallelism; i++) {
+                    workers.add(pool.submit(() -> {
+                        int k;
+                        while ((k = next.getAndIncrement()) < recordings.size())
+                            convertRecording(recordings.get(k), manifest);
+                    }));
+                }
+                for (ForkJoinTask<?> worker : workers)
+                    worker.join();
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        if (manifest != null) {
+            try {
+                manifest.save();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static String conversionParams() {
+        return "hmpRate=" + Config.HMP_SAMPLING_RATE
+                + ";streamRate=" + Config.STREAM_SAMPLING_RATE
+                + ";halfTaps=" + Resampler.DEFAULT_HALF_TAPS
+                + ";format=" + (Config.WRITE_BINARY_STREAM ? "bin" : "csv");
+    }
+
+    private static List<Recording> listRecordings(String inDir, String outDir) {
+        List<Recording> recordings = new ArrayList<>();
         File filefolder = new File(inDir);
 
         for (final File labelDir : filefolder.listFiles()) {
@@ -29,64 +103,122 @@ public class ConvertADLDataSetToStreamProcessorData {
                 if (f.isDirectory()) continue;
 
                 String fName = f.getName();
-                String fileNameWtDir = inDir + dirName + fName;
-
-                List<double[]> xyz = readDataAndGetSIValues(fileNameWtDir);
-                List<double[]> txyz = changeSamplingRateAndAddTIme(xyz); // 32hz to 16hz
-                createIfNotExist(outDir + dirName);
-                wristeIntoFiles(txyz, outDir + dirName + fName.substring(0, fName.length()-3) + "\\");
-
+                recordings.add(new Recording(dirName + fName, inDir + dirName + fName, outDir + dirName,
+                        outDir + dirName + fName.substring(0, fName.length()-3) + "\\", f.length()));
             }
         }
+        return recordings;
     }
 
-    private static void wristeIntoFiles(List<double[]> txyz, String dir) {
+    private static void convertRecording(Recording recording, ConversionManifest manifest) {
+        File source = new File(recording.inFile);
+        if (manifest != null && manifest.isUpToDate(recording.key, source, new File(recording.outDir)))
+            return;
+
+        createIfNotExist(recording.labelOutDir);
+        String dir = recording.outDir;
+        if (manifest != null) {
+            dir = recording.outDir.substring(0, recording.outDir.length() - 1) + STAGING_SUFFIX + "\\";
+            deleteRecursively(new File(dir));
+        }
         createIfNotExist(dir);
-        for (int i=0; i<txyz.size(); i++) {
-            double[] vals = txyz.get(i);
-            Config.fileWrite(dir+"right-wrist-accelx.csv", (int)vals[0] + ","+ vals[1]);
-            Config.fileWrite(dir+"right-wrist-accely.csv", (int)vals[0] + ","+ vals[2]);
-            Config.fileWrite(dir+"right-wrist-accelz.csv", (int)vals[0] + ","+ vals[3]);
-            Config.fileWrite(dir+"right-wrist-accelxyz.csv", (int)vals[0] + ","+ vals[1] + ","+ vals[2] + ","+ vals[3]);
+
+        long start = System.nanoTime();
+        long samples = 0;
+        // the source is hashed while it is converted, unless isUpToDate already hashed it
+        long sourceSize = source.length();
+        long sourceModified = source.lastModified();
+        String hash = manifest != null ? manifest.knownHash(recording.key, source) : null;
+        MessageDigest digest = manifest != null && hash == null ? ConversionManifest.newDigest() : null;
+        try {
+            try (SampleWriter writer = openWriter(dir)) {
+                final Resampler resampler = new Resampler(Config.HMP_SAMPLING_RATE, Config.STREAM_SAMPLING_RATE, writer);
+                HMPReader.stream(recording.inFile, resampler::add, digest);
+                resampler.finish();
+                samples = resampler.getOutputCount();
+            }
+            if (manifest != null) {
+                replaceDirectory(dir, recording.outDir);
+                manifest.record(recording.key, sourceSize, sourceModified,
+                        hash != null ? hash : ConversionManifest.toHex(digest));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            if (manifest != null)
+                deleteRecursively(new File(dir));
         }
+        printProgress(recording.outDir, samples, System.nanoTime() - start);
     }
 
-    public static void createIfNotExist(String outputPath) {
-        File f = new File(outputPath);
-        if (!f.exists()) f.mkdir();
+    /*
+    * Moves the finished temp directory into place; the previous output is removed afterwards.
+    * If the second move fails the previous output is moved back
+    * */
+    private static void replaceDirectory(String tmpDir, String dir) throws IOException {
+        Path target = Paths.get(dir);
+        Path old = Paths.get(dir.substring(0, dir.length() - 1) + REPLACED_SUFFIX);
+        deleteRecursively(old.toFile());
+        boolean replacing = Files.exists(target);
+        if (replacing)
+            Files.move(target, old, StandardCopyOption.ATOMIC_MOVE);
+        try {
+            Files.move(Paths.get(tmpDir), target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (replacing) {
+                try {
+                    Files.move(old, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException restoreError) {
+                    e.addSuppressed(restoreError);
+                }
+            }
+            throw e;
+        }
+        deleteRecursively(old.toFile());
     }
 
-    private static List<double[]> changeSamplingRateAndAddTIme(List<double[]> xyz) {
-        List<double[]> txyz = new ArrayList<>();
-        double t = 0;
-        double delta = 1000.0/16;
-        for (int i=0; i<xyz.size(); i++) {
-            if (i%2==1) continue;
-            double[] values = new double[]{t, xyz.get(i)[0], xyz.get(i)[1], xyz.get(i)[2]};
-            txyz.add(values);
-            t+=delta;
+    private static void deleteRecursively(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File child : children)
+                deleteRecursively(child);
         }
-        return txyz;
+        f.delete();
     }
 
-    private static List<double[]> readDataAndGetSIValues(String fileName) {
-        List<double[]> xyz = new ArrayList<>();
-        try {
-            Scanner in = new Scanner(new File(fileName));
-            while (in.hasNext()) {
-                int x = in.nextInt();
-                int y = in.nextInt();
-                int z = in.nextInt();
-                double[] values = new double[]{convertSI(x), convertSI(y), convertSI(z) };
-                xyz.add(values);
-            }
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
+    private static class Recording {
+        final String key;
+        final String inFile;
+        final String labelOutDir;
+        final String outDir;
+        final long size;
+
+        Recording(String key, String inFile, String labelOutDir, String outDir, long size) {
+            this.key = key;
+            this.inFile = inFile;
+            this.labelOutDir = labelOutDir;
+            this.outDir = outDir;
+            this.size = size;
         }
-        return xyz;
     }
 
-    private static double convertSI(int coded_val) {
+    private static SampleWriter openWriter(String dir) throws IOException {
+        if (Config.WRITE_BINARY_STREAM)
+            return new BinaryStreamWriter(dir);
+        return new StreamProcessorWriter(dir);
+    }
+
+    private static void printProgress(String dir, long samples, long nanos) {
+        double seconds = nanos / 1e9;
+        long rate = seconds > 0 ? (long) (samples / seconds) : samples;
+        System.out.println(dir + " : " + samples + " samples, " + rate + " samples/sec");
+    }
+
+    public static void createIfNotExist(String outputPath) {
+        File f = new File(outputPath);
+        if (!f.exists()) f.mkdir();
+    }
+
+    static double convertSI(int coded_val) {
         return -1.5 + (1.0*coded_val/63)*3;
 
     }
@@ -0,0 +1,100 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-place iterative radix-2 FFT. A plan holds the twiddle factors and the bit-reversal
+ * permutation of one transform size; plans and Hann windows are cached per length and shared
+ * between threads (they are read-only), so a window only pays for the butterflies.
+ */
+public class FFT {
+
+    private static final Map<Integer, FFT> PLAN_CACHE = new ConcurrentHashMap<>();
+    private static final Map<Integer, double[]> HANN_CACHE = new ConcurrentHashMap<>();
+
+    private final int size;
+    private final double[] cos;
+    private final double[] sin;
+    private final int[] reversed;
+
+    private FFT(int size) {
+        this.size = size;
+        this.cos = new double[size / 2];
+        this.sin = new double[size / 2];
+        for (int k = 0; k < size / 2; k++) {
+            cos[k] = Math.cos(-2 * Math.PI * k / size);
+            sin[k] = Math.sin(-2 * Math.PI * k / size);
+        }
+        this.reversed = new int[size];
+        int bits = Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < size; i++)
+            reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+    }
+
+    /*
+    * Plan of a power-of-two size
+    * */
+    public static FFT plan(int size) {
+        if (size < 1 || Integer.bitCount(size) != 1)
+            throw new IllegalArgumentException("FFT size must be a power of two: " + size);
+        return PLAN_CACHE.computeIfAbsent(size, FFT::new);
+    }
+
+    /*
+    * Smallest power of two >= n
+    * */
+    public static int sizeFor(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    /*
+    * Symmetric Hann window of length n
+    * */
+    public static double[] hann(int n) {
+        double[] w = HANN_CACHE.get(n);
+        if (w != null) return w;
+        w = new double[n];
+        for (int i = 0; i < n; i++)
+            w[i] = n == 1 ? 1 : 0.5 - 0.5 * Math.cos(2 * Math.PI * i / (n - 1));
+        HANN_CACHE.put(n, w);
+        return w;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /*
+    * Forward transform of re + i*im (the first getSize() entries), in place
+    * */
+    public void transform(double[] re, double[] im) {
+        for (int i = 0; i < size; i++) {
+            int j = reversed[i];
+            if (j > i) {
+                double tr = re[i];
+                re[i] = re[j];
+                re[j] = tr;
+                double ti = im[i];
+                im[i] = im[j];
+                im[j] = ti;
+            }
+        }
+
+        for (int half = 1; half < size; half <<= 1) {
+            int step = size / (half << 1);
+            for (int blockStart = 0; blockStart < size; blockStart += half << 1) {
+                for (int k = 0; k < half; k++) {
+                    int a = blockStart + k;
+                    int b = a + half;
+                    double wr = cos[k * step];
+                    double wi = sin[k * step];
+                    double br = re[b] * wr - im[b] * wi;
+                    double bi = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - br;
+                    im[b] = im[a] - bi;
+                    re[a] += br;
+                    im[a] += bi;
+                }
+            }
+        }
+    }
+}
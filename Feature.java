@@ -0,0 +1,47 @@
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A window feature: a column name, the shared intermediates it reads and how it is computed
+ * from them. Features are looked up by name in {@link FeatureRegistry}; {@link FeaturePlan}
+ * computes every intermediate needed by the selected features once per window.
+ */
+public interface Feature {
+
+    enum Intermediate {
+        MAGNITUDE,          // per-sample magnitudes of the window
+        MOMENTS,            // magnitude mean and central moments M2..M4
+        AXIS_MOMENTS,       // x/y/z mean and M2
+        ORDER_STATISTICS,   // magnitude order statistics (sorted copy, or the sliding order-statistic tree)
+        DIFFS,              // magnitude differences over time
+        SPECTRUM            // power spectrum of the magnitudes
+    }
+
+    String getName();
+
+    Set<Intermediate> getIntermediates();
+
+    double compute(WindowStats stats);
+
+    static Feature of(final String name, final ToDoubleFunction<WindowStats> function,
+                      Intermediate first, Intermediate... rest) {
+        final Set<Intermediate> intermediates = EnumSet.of(first, rest);
+        return new Feature() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Set<Intermediate> getIntermediates() {
+                return intermediates;
+            }
+
+            @Override
+            public double compute(WindowStats stats) {
+                return function.applyAsDouble(stats);
+            }
+        };
+    }
+}
@@ -0,0 +1,57 @@
+import java.util.Arrays;
+
+/**
+ * Feature rows of one recording, row-major in a single double array (no labels; those are
+ * added when the rows are formatted). This is what FeatureCache stores.
+ */
+public class FeatureBlock {
+
+    private final int columns;
+    private double[] values;
+    private int rows = 0;
+
+    public FeatureBlock(int columns) {
+        this(columns, new double[columns * 64], 0);
+    }
+
+    FeatureBlock(int columns, double[] values, int rows) {
+        this.columns = columns;
+        this.values = values;
+        this.rows = rows;
+    }
+
+    public void add(double[] f) {
+        if (f.length != columns)
+            throw new IllegalArgumentException("Expected " + columns + " features, got " + f.length);
+        int end = (rows + 1) * columns;
+        if (end > values.length)
+            values = Arrays.copyOf(values, Math.max(end, values.length * 2));
+        System.arraycopy(f, 0, values, rows * columns, columns);
+        rows++;
+    }
+
+    /*
+    * Formats every row as prefix, the features and the two label columns
+    * */
+    public void appendTo(FeatureRowFormatter out, String prefix, String label, String activityLabel) {
+        for (int r = 0; r < rows; r++) {
+            out.appendString(prefix);
+            out.appendRow(values, r * columns, columns, label, activityLabel);
+        }
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /*
+    * Row-major values; valid for the first getRows() * getColumns() entries
+    * */
+    public double[] getValues() {
+        return values;
+    }
+}
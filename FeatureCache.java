@@ -0,0 +1,278 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * On-disk cache of per-recording feature blocks, content addressed: the entry name is the SHA-256
+ * of (SHA-256 of the recording's data file, window size, hop size, feature plan signature), so
+ * an entry is reused exactly when none of these changed, whatever the labels or sampling caps.
+ * Blocks are stored as "magic, columns, rows, row-major doubles". Entries are evicted least
+ * recently used first once the cache grows over maxBytes. The index (cache-index.tsv, in LRU
+ * order) and the memo of data file hashes (source-hashes.tsv, by path, size and mtime) are
+ * written every SAVE_INTERVAL new blocks and on close; blocks of a run that was killed before
+ * its index was written are adopted by the next open when they read back correctly.
+ * Safe for concurrent use by the extraction threads.
+ */
+public class FeatureCache implements Closeable {
+
+    public static final String INDEX_FILE = "cache-index.tsv";
+    public static final String HASH_FILE = "source-hashes.tsv";
+
+    private static final String SUFFIX = ".fblk";
+    private static final int MAGIC = 0x46424B31; // "FBK1"
+    private static final int HEADER_SIZE = 12;
+    private static final int SAVE_INTERVAL = 64;
+
+    private final String dir;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true); // name -> bytes
+    private long totalBytes = 0;
+    private int unsaved = 0;
+    private final Map<String, SourceHash> sourceHashes = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    private static class SourceHash {
+        final long size;
+        final long lastModified;
+        final String hash;
+
+        SourceHash(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+
+    private FeatureCache(String dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /*
+    * Opens (or creates) the cache in dir. Block files missing from the index are added to it
+    * (as most recently used) when they read back as a feature block, deleted otherwise
+    * */
+    public static FeatureCache open(String dir, long maxBytes) throws IOException {
+        ConvertADLDataSetToStreamProcessorData.createIfNotExist(dir);
+        FeatureCache cache = new FeatureCache(dir, maxBytes);
+        cache.loadIndex();
+        cache.loadSourceHashes();
+
+        File[] files = new File(dir).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(".tmp")) {
+                    file.delete();
+                } else if (name.endsWith(SUFFIX)) {
+                    String key = name.substring(0, name.length() - SUFFIX.length());
+                    if (!cache.entries.containsKey(key) && !cache.adopt(key, file))
+                        file.delete();
+                }
+            }
+        }
+        cache.evict();
+        return cache;
+    }
+
+    private void loadIndex() {
+        File file = new File(dir + INDEX_FILE);
+        if (!file.exists()) return;
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] toks = line.split("\t");
+                if (toks.length != 2 || !new File(dir + toks[0] + SUFFIX).exists()) continue;
+                long bytes = Long.parseLong(toks[1]);
+                entries.put(toks[0], bytes);
+                totalBytes += bytes;
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Ignoring unreadable feature cache index " + file + ": " + e.getMessage());
+            entries.clear();
+            totalBytes = 0;
+        }
+    }
+
+    private boolean adopt(String key, File file) {
+        try {
+            read(file);
+        } catch (IOException e) {
+            return false;
+        }
+        entries.put(key, file.length());
+        totalBytes += file.length();
+        return true;
+    }
+
+    private void loadSourceHashes() {
+        File file = new File(dir + HASH_FILE);
+        if (!file.exists()) return;
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] toks = line.split("\t");
+                if (toks.length != 4) continue;
+                sourceHashes.put(toks[0], new SourceHash(Long.parseLong(toks[1]), Long.parseLong(toks[2]), toks[3]));
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Ignoring unreadable hash memo " + file + ": " + e.getMessage());
+            sourceHashes.clear();
+        }
+    }
+
+    /*
+    * Cache key of the features of a data file for the given windowing and feature plan signature
+    * */
+    public String key(File source, int windowSize, int hopSize, String signature) throws IOException {
+        return sha256(sourceHash(source) + "|" + windowSize + "|" + hopSize + "|" + signature);
+    }
+
+    private String sourceHash(File source) throws IOException {
+        String path = source.getAbsolutePath();
+        SourceHash known = sourceHashes.get(path);
+        if (known != null && known.size == source.length() && known.lastModified == source.lastModified())
+            return known.hash;
+        SourceHash hash = new SourceHash(source.length(), source.lastModified(), ConversionManifest.hash(source));
+        sourceHashes.put(path, hash);
+        return hash.hash;
+    }
+
+    /*
+    * The cached block, or null on a miss
+    * */
+    public FeatureBlock get(String key) {
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+        try {
+            FeatureBlock block = read(new File(dir + key + SUFFIX));
+            hits.incrementAndGet();
+            return block;
+        } catch (IOException e) {
+            System.err.println("Dropping unreadable feature cache entry " + key + ": " + e.getMessage());
+            remove(key);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    public void put(String key, FeatureBlock block) throws IOException {
+        File file = new File(dir + key + SUFFIX);
+        File tmp = new File(dir + key + "." + Thread.currentThread().getId() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(block.getColumns());
+            out.writeInt(block.getRows());
+            double[] values = block.getValues();
+            for (int i = 0, n = block.getRows() * block.getColumns(); i < n; i++)
+                out.writeDouble(values[i]);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        synchronized (this) {
+            Long old = entries.put(key, file.length());
+            if (old != null)
+                totalBytes -= old;
+            totalBytes += file.length();
+            evict();
+            if (++unsaved >= SAVE_INTERVAL)
+                save();
+        }
+    }
+
+    private static FeatureBlock read(File file) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (buf.remaining() < HEADER_SIZE || buf.getInt() != MAGIC)
+            throw new IOException("Not a feature block: " + file);
+        int columns = buf.getInt();
+        int rows = buf.getInt();
+        if (columns <= 0 || rows < 0 || buf.remaining() != (long) rows * columns * 8)
+            throw new IOException("Truncated feature block: " + file);
+        double[] values = new double[Math.max(rows * columns, columns)];
+        buf.asDoubleBuffer().get(values, 0, rows * columns);
+        return new FeatureBlock(columns, values, rows);
+    }
+
+    private synchronized void remove(String key) {
+        Long bytes = entries.remove(key);
+        if (bytes != null)
+            totalBytes -= bytes;
+        new File(dir + key + SUFFIX).delete();
+    }
+
+    /*
+    * Drops least recently used entries until the cache fits in maxBytes
+    * */
+    private synchronized void evict() {
+        while (totalBytes > maxBytes && !entries.isEmpty()) {
+            Map.Entry<String, Long> eldest = entries.entrySet().iterator().next();
+            entries.remove(eldest.getKey());
+            totalBytes -= eldest.getValue();
+            new File(dir + eldest.getKey() + SUFFIX).delete();
+        }
+    }
+
+    /*
+    * Writes the index and the hash memo, each to a temp file renamed over the old one
+    * */
+    private synchronized void save() throws IOException {
+        unsaved = 0;
+        File tmp = new File(dir + INDEX_FILE + ".tmp");
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(tmp))) {
+            for (Map.Entry<String, Long> e : entries.entrySet())
+                out.write(e.getKey() + "\t" + e.getValue() + "\n");
+        }
+        Files.move(tmp.toPath(), new File(dir + INDEX_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        tmp = new File(dir + HASH_FILE + ".tmp");
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(tmp))) {
+            for (Map.Entry<String, SourceHash> e : sourceHashes.entrySet()) {
+                SourceHash h = e.getValue();
+                if (new File(e.getKey()).exists())
+                    out.write(e.getKey() + "\t" + h.size + "\t" + h.lastModified + "\t" + h.hash + "\n");
+            }
+        }
+        Files.move(tmp.toPath(), new File(dir + HASH_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        save();
+        System.out.println("Feature cache: " + hits.get() + " hits, " + misses.get() + " misses, "
+                + entries.size() + " entries, " + totalBytes + " bytes");
+    }
+
+    private static String sha256(String s) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest)
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The selected features of a run and the union of the intermediates they need.
+ * WindowStats computes only those intermediates, each once per window, and the features
+ * then read them; the CSV header is generated from the same list.
+ */
+public class FeaturePlan {
+
+    private final List<Feature> features;
+    private final Set<Feature.Intermediate> intermediates = EnumSet.noneOf(Feature.Intermediate.class);
+
+    public FeaturePlan(List<String> featureNames) {
+        if (featureNames.isEmpty())
+            throw new IllegalArgumentException("No features selected");
+        List<Feature> selected = new ArrayList<>();
+        for (String name : featureNames) {
+            Feature feature = FeatureRegistry.get(name);
+            selected.add(feature);
+            intermediates.addAll(feature.getIntermediates());
+        }
+        this.features = Collections.unmodifiableList(selected);
+    }
+
+    public static FeaturePlan defaultPlan() {
+        return new FeaturePlan(FeatureRegistry.DEFAULT_FEATURES);
+    }
+
+    public boolean needs(Feature.Intermediate intermediate) {
+        return intermediates.contains(intermediate);
+    }
+
+    public List<Feature> getFeatures() {
+        return features;
+    }
+
+    /*
+    * Feature columns followed by the two label columns written by FeatureRowFormatter.appendRow
+    * */
+    public String header() {
+        StringBuilder sb = new StringBuilder();
+        for (Feature feature : features)
+            sb.append(feature.getName()).append(',');
+        return sb.append("actualActivity,activityLabel").toString();
+    }
+
+    /*
+    * Identifies the columns and their definitions, e.g. for FeatureCache keys
+    * */
+    public String signature() {
+        StringBuilder sb = new StringBuilder("v").append(FeatureRegistry.FEATURE_SET_VERSION).append(':');
+        for (Feature feature : features)
+            sb.append(feature.getName()).append(',');
+        return sb.toString();
+    }
+
+    /*
+    * Computes the features of a window whose intermediates are in stats
+    * */
+    public double[] compute(WindowStats stats) {
+        return compute(stats, new double[features.size()]);
+    }
+
+    /*
+    * Same, into f (of length getFeatures().size()), without allocating
+    * */
+    public double[] compute(WindowStats stats, double[] f) {
+        for (int i = 0; i < f.length; i++)
+            f[i] = features.get(i).compute(stats);
+        return f;
+    }
+}
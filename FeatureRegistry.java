@@ -0,0 +1,66 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Features available to the feature extraction, by name, in registration order.
+ * DEFAULT_FEATURES is the column set of the original feature files.
+ */
+public class FeatureRegistry {
+
+    // bump when the definition of a registered feature changes, so cached features are recomputed
+    public static final int FEATURE_SET_VERSION = 2;
+
+    private static final Map<String, Feature> features = new LinkedHashMap<>();
+
+    static {
+        register(Feature.of("mean", WindowStats::mean, Feature.Intermediate.MOMENTS));
+        register(Feature.of("median", WindowStats::median, Feature.Intermediate.ORDER_STATISTICS));
+        register(Feature.of("sd", WindowStats::sd, Feature.Intermediate.MOMENTS));
+        register(Feature.of("sd_x", WindowStats::sdX, Feature.Intermediate.AXIS_MOMENTS));
+        register(Feature.of("sd_y", WindowStats::sdY, Feature.Intermediate.AXIS_MOMENTS));
+        register(Feature.of("sd_z", WindowStats::sdZ, Feature.Intermediate.AXIS_MOMENTS));
+        register(Feature.of("skew", WindowStats::skew, Feature.Intermediate.MOMENTS));
+        register(Feature.of("kurt", WindowStats::kurt, Feature.Intermediate.MOMENTS));
+        register(Feature.of("rateOfChange", WindowStats::rateOfChange, Feature.Intermediate.DIFFS));
+        register(Feature.of("p10", s -> s.quantile(0), Feature.Intermediate.ORDER_STATISTICS));
+        register(Feature.of("p25", s -> s.quantile(1), Feature.Intermediate.ORDER_STATISTICS));
+        register(Feature.of("p75", s -> s.quantile(2), Feature.Intermediate.ORDER_STATISTICS));
+        register(Feature.of("p90", s -> s.quantile(3), Feature.Intermediate.ORDER_STATISTICS));
+        register(Feature.of("iqr", s -> s.quantile(2) - s.quantile(1), Feature.Intermediate.ORDER_STATISTICS));
+        register(Feature.of("dominantFrequency", WindowStats::dominantFrequency, Feature.Intermediate.SPECTRUM));
+        register(Feature.of("spectralEnergy", WindowStats::spectralEnergy, Feature.Intermediate.SPECTRUM));
+        register(Feature.of("bandPower_0_3", WindowStats::bandPowerLow, Feature.Intermediate.SPECTRUM));
+        register(Feature.of("bandPower_3_8", WindowStats::bandPowerHigh, Feature.Intermediate.SPECTRUM));
+        register(Feature.of("spectralEntropy", WindowStats::spectralEntropy, Feature.Intermediate.SPECTRUM));
+    }
+
+    public static final List<String> DEFAULT_FEATURES = Collections.unmodifiableList(Arrays.asList(
+            "mean", "median", "sd", "sd_x", "sd_y", "sd_z", "skew", "kurt", "rateOfChange"));
+
+    public static final List<String> QUANTILE_FEATURES = Collections.unmodifiableList(Arrays.asList(
+            "p10", "p25", "p75", "p90", "iqr"));
+
+    public static final List<String> SPECTRAL_FEATURES = Collections.unmodifiableList(Arrays.asList(
+            "dominantFrequency", "spectralEnergy", "bandPower_0_3", "bandPower_3_8", "spectralEntropy"));
+
+    public static synchronized void register(Feature feature) {
+        if (features.containsKey(feature.getName()))
+            throw new IllegalArgumentException("Feature already registered: " + feature.getName());
+        features.put(feature.getName(), feature);
+    }
+
+    public static synchronized Feature get(String name) {
+        Feature feature = features.get(name);
+        if (feature == null)
+            throw new IllegalArgumentException("Unknown feature: " + name + ", available: " + features.keySet());
+        return feature;
+    }
+
+    public static synchronized List<String> getNames() {
+        return new ArrayList<>(features.keySet());
+    }
+}
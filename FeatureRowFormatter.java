@@ -0,0 +1,211 @@
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Formats feature rows ("f0,f1,...,label,activityLabel\n") into a reusable byte buffer.
+ * By default (digits = SHORTEST) doubles are written exactly as Double.toString writes them, so
+ * they read back to the same value. Reduced precision is opt-in (Config.FEATURE_DIGITS): the value
+ * rounded half up to a fixed number of significant digits, as BigDecimal.round, in plain notation
+ * for 1e-3 <= |v| < 1e7, otherwise d.dddE-n, trailing zeros dropped, and NaN / Infinity / 0.0
+ * spelled as Double.toString does. The digits come from a table driven double product when it is
+ * far enough from a rounding tie to be exact (in practice up to about 15 digits), from BigDecimal
+ * otherwise. FeatureRowFormatterCheck compares the output with BigDecimal and Double.toString.
+ */
+public class FeatureRowFormatter {
+
+    // digits value for the shortest representation that round-trips, as Double.toString
+    public static final int SHORTEST = 0;
+
+    private static final double[] POW10 = new double[600];
+    private static final int POW10_OFFSET = 300;
+    private static final long[] LONG_POW10 = new long[19];
+
+    static {
+        for (int i = 0; i < POW10.length; i++)
+            POW10[i] = Double.parseDouble("1E" + (i - POW10_OFFSET));
+        LONG_POW10[0] = 1;
+        for (int i = 1; i < LONG_POW10.length; i++)
+            LONG_POW10[i] = LONG_POW10[i - 1] * 10;
+    }
+
+    private final int digits;
+    private final byte[] digitBuf = new byte[20];
+    private byte[] buf;
+    private int size = 0;
+
+    /*
+    * Significant digits from Config.FEATURE_DIGITS
+    * */
+    public FeatureRowFormatter() {
+        this(1 << 12);
+    }
+
+    public FeatureRowFormatter(int capacity) {
+        this(capacity, Config.FEATURE_DIGITS);
+    }
+
+    /*
+    * digits = SHORTEST or 1..17 significant digits
+    * */
+    public FeatureRowFormatter(int capacity, int digits) {
+        if (digits != SHORTEST && (digits < 1 || digits > 17))
+            throw new IllegalArgumentException("digits must be SHORTEST or in 1..17: " + digits);
+        this.buf = new byte[Math.max(capacity, 64)];
+        this.digits = digits;
+    }
+
+    public void appendRow(double[] f, String label, String activityLabel) {
+        appendRow(f, 0, f.length, label, activityLabel);
+    }
+
+    /*
+    * Row of the count values starting at f[offset]
+    * */
+    public void appendRow(double[] f, int offset, int count, String label, String activityLabel) {
+        for (int i = 0; i < count; i++) {
+            if (i > 0) appendByte(',');
+            appendDouble(f[offset + i]);
+        }
+        appendByte(',');
+        appendString(label);
+        appendByte(',');
+        appendString(activityLabel);
+        appendByte('\n');
+    }
+
+    public void appendBytes(byte[] bytes, int off, int len) {
+        ensureCapacity(size + len);
+        System.arraycopy(bytes, off, buf, size, len);
+        size += len;
+    }
+
+    public void appendString(String s) {
+        if (s == null) s = "null";
+        int n = s.length();
+        ensureCapacity(size + n);
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                appendUtf8(s.substring(i));
+                return;
+            }
+            buf[size++] = (byte) c;
+        }
+    }
+
+    private void appendUtf8(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        appendBytes(b, 0, b.length);
+    }
+
+    public void appendDouble(double v) {
+        ensureCapacity(size + 32);
+        if (Double.isNaN(v)) {
+            appendAscii("NaN");
+            return;
+        }
+        if (v < 0 || (v == 0 && 1 / v < 0)) {
+            buf[size++] = '-';
+            v = -v;
+        }
+        if (Double.isInfinite(v)) {
+            appendAscii("Infinity");
+            return;
+        }
+        if (v == 0) {
+            appendAscii("0.0");
+            return;
+        }
+        if (digits == SHORTEST) {
+            appendAscii(Double.toString(v));
+            return;
+        }
+
+        int e = (int) Math.floor(Math.log10(v));
+        int scale = POW10_OFFSET + digits - 1 - e;
+        long m;
+        double p = scale >= 0 && scale < POW10.length ? v * POW10[scale] : 0;
+        // p is within two roundings (relative 2^-52) of the exact v * 10^(digits-1-e): its rounding is
+        // exact unless it lies near a tie, and e is right when p has exactly digits integer digits
+        if (p >= LONG_POW10[digits - 1] && p < LONG_POW10[digits] - 1
+                && Math.abs(p - Math.floor(p) - 0.5) > p * 0x1p-50) {
+            m = Math.round(p);
+        } else {
+            BigDecimal r = new BigDecimal(v).round(new MathContext(digits, RoundingMode.HALF_UP));
+            m = r.unscaledValue().longValue() * LONG_POW10[digits - r.precision()];
+            e = r.precision() - r.scale() - 1;
+        }
+
+        // significant digits, trailing zeros dropped (at least one kept)
+        int n = digits;
+        for (int i = n - 1; i >= 0; i--) {
+            digitBuf[i] = (byte) ('0' + m % 10);
+            m /= 10;
+        }
+        while (n > 1 && digitBuf[n - 1] == '0')
+            n--;
+
+        if (e >= -3 && e < 7) {
+            if (e >= 0) {
+                for (int i = 0; i <= e; i++)
+                    buf[size++] = i < n ? digitBuf[i] : (byte) '0';
+                buf[size++] = '.';
+                if (n > e + 1) {
+                    for (int i = e + 1; i < n; i++)
+                        buf[size++] = digitBuf[i];
+                } else {
+                    buf[size++] = '0';
+                }
+            } else {
+                buf[size++] = '0';
+                buf[size++] = '.';
+                for (int i = -1; i > e; i--)
+                    buf[size++] = '0';
+                for (int i = 0; i < n; i++)
+                    buf[size++] = digitBuf[i];
+            }
+        } else {
+            buf[size++] = digitBuf[0];
+            buf[size++] = '.';
+            if (n > 1) {
+                for (int i = 1; i < n; i++)
+                    buf[size++] = digitBuf[i];
+            } else {
+                buf[size++] = '0';
+            }
+            buf[size++] = 'E';
+            appendAscii(Integer.toString(e));
+        }
+    }
+
+    private void appendAscii(String s) {
+        ensureCapacity(size + s.length());
+        for (int i = 0; i < s.length(); i++)
+            buf[size++] = (byte) s.charAt(i);
+    }
+
+    private void appendByte(char c) {
+        ensureCapacity(size + 1);
+        buf[size++] = (byte) c;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buf.length)
+            buf = Arrays.copyOf(buf, Math.max(capacity, buf.length * 2));
+    }
+
+    public byte[] getBuffer() {
+        return buf;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void reset() {
+        size = 0;
+    }
+}
@@ -0,0 +1,49 @@
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Random;
+
+/**
+ * Checks FeatureRowFormatter.appendDouble on random doubles (random bit patterns and feature-like
+ * values): with SHORTEST the output must equal Double.toString, with 1..17 digits it must read
+ * back to new BigDecimal(v).round(new MathContext(digits)). Prints the mismatches per setting.
+ * Usage: FeatureRowFormatterCheck [count]
+ */
+public class FeatureRowFormatterCheck {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int failures = 0;
+
+        for (int digits = FeatureRowFormatter.SHORTEST; digits <= 17; digits++) {
+            Random random = new Random(digits);
+            FeatureRowFormatter formatter = new FeatureRowFormatter(64, digits);
+            int mismatches = 0;
+            for (int i = 0; i < count; i++) {
+                double v = i % 2 == 0
+                        ? Double.longBitsToDouble(random.nextLong())
+                        : random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10);
+                formatter.reset();
+                formatter.appendDouble(v);
+                String s = new String(formatter.getBuffer(), 0, formatter.size());
+                if (!matches(s, v, digits)) {
+                    if (mismatches < 5)
+                        System.out.println("digits " + digits + ": " + s + " for " + new BigDecimal(v));
+                    mismatches++;
+                }
+            }
+            System.out.println("digits " + (digits == FeatureRowFormatter.SHORTEST ? "SHORTEST" : digits)
+                    + ": " + mismatches + " mismatches in " + count);
+            failures += mismatches;
+        }
+        if (failures > 0)
+            System.exit(1);
+    }
+
+    private static boolean matches(String s, double v, int digits) {
+        if (Double.isNaN(v) || Double.isInfinite(v) || v == 0 || digits == FeatureRowFormatter.SHORTEST)
+            return s.equals(Double.toString(v));
+        BigDecimal expected = new BigDecimal(v).round(new MathContext(digits, RoundingMode.HALF_UP));
+        return new BigDecimal(s).compareTo(expected) == 0;
+    }
+}
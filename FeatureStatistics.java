@@ -0,0 +1,95 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Corpus-wide statistics of every feature column, collected while the feature rows are
+ * extracted: moments (MomentAccumulator) and approximate quantiles (KllSketch) in bounded
+ * memory, e.g. for normalization or for clipping outliers at SUMMARY_QUANTILES. Quantiles are
+ * within KllSketch.getNormalizedRankError(KllSketch.DEFAULT_K) in rank; min and max are exact.
+ * The sketches depend on the order the blocks are added in; doProcess adds them in recording
+ * order on the writing thread, so the statistics are the same for any parallelism. Not thread
+ * safe; merge per-thread instances instead.
+ */
+public class FeatureStatistics {
+
+    public static final double[] SUMMARY_QUANTILES = {0.01, 0.05, 0.25, 0.5, 0.75, 0.95, 0.99};
+
+    private final String[] names;
+    private final MomentAccumulator[] moments;
+    private final KllSketch[] sketches;
+
+    public FeatureStatistics(FeaturePlan plan) {
+        List<Feature> features = plan.getFeatures();
+        int columns = features.size();
+        names = new String[columns];
+        moments = new MomentAccumulator[columns];
+        sketches = new KllSketch[columns];
+        for (int i = 0; i < columns; i++) {
+            names[i] = features.get(i).getName();
+            moments[i] = new MomentAccumulator();
+            sketches[i] = new KllSketch(KllSketch.DEFAULT_K, i);
+        }
+    }
+
+    public void add(FeatureBlock block) {
+        int columns = block.getColumns();
+        if (columns != names.length)
+            throw new IllegalArgumentException("Expected " + names.length + " features, got " + columns);
+        double[] values = block.getValues();
+        int end = block.getRows() * columns;
+        for (int offset = 0; offset < end; offset += columns) {
+            for (int i = 0; i < columns; i++) {
+                double v = values[offset + i];
+                if (Double.isNaN(v)) continue;
+                moments[i].add(v);
+                sketches[i].add(v);
+            }
+        }
+    }
+
+    public void merge(FeatureStatistics other) {
+        if (other.names.length != names.length)
+            throw new IllegalArgumentException("Expected " + names.length + " features, got " + other.names.length);
+        for (int i = 0; i < names.length; i++) {
+            moments[i].merge(other.moments[i]);
+            sketches[i].merge(other.sketches[i]);
+        }
+    }
+
+    public MomentAccumulator getMoments(int column) {
+        return moments[column];
+    }
+
+    public KllSketch getSketch(int column) {
+        return sketches[column];
+    }
+
+    /*
+    * One line per feature: feature,count,mean,sd,min,p1,p5,p25,p50,p75,p95,p99,max
+    * */
+    public void write(String fileName) {
+        StringBuilder sb = new StringBuilder("feature,count,mean,sd,min");
+        for (double q : SUMMARY_QUANTILES)
+            sb.append(",p").append(Math.round(q * 100));
+        sb.append(",max\n");
+
+        double[] quantiles = new double[SUMMARY_QUANTILES.length];
+        for (int i = 0; i < names.length; i++) {
+            sketches[i].getQuantiles(SUMMARY_QUANTILES, quantiles);
+            sb.append(names[i]).append(',').append(moments[i].getCount())
+                    .append(',').append(moments[i].getMean())
+                    .append(',').append(moments[i].getStdev())
+                    .append(',').append(sketches[i].getMin());
+            for (double q : quantiles)
+                sb.append(',').append(q);
+            sb.append(',').append(sketches[i].getMax()).append('\n');
+        }
+
+        try (FileWriter fw = new FileWriter(fileName)) {
+            fw.write(sb.toString());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
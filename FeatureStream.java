@@ -0,0 +1,80 @@
+/**
+ * Push-based feature extraction for live data: samples are passed to onSample as they arrive and
+ * the listener is called with the feature vector of a window as soon as the sample closing it
+ * is pushed. Windowing is that of SlidingWindow, the features those of a FeaturePlan (WindowStats).
+ * The feature array handed to the listener is reused for the next window, and all other buffers
+ * only grow, so in steady state pushing a sample allocates nothing.
+ * An optional Classifier maps each feature vector to an activity label. Not thread safe: one
+ * instance per sensor stream, fed from one thread.
+ */
+public class FeatureStream {
+
+    public interface Listener {
+        /*
+        * startTime / endTime = timestamps of the first and the closing sample of the window;
+        * features is only valid during the call; activityLabel is null without a classifier
+        * */
+        void onFeatures(long startTime, long endTime, double[] features, String activityLabel);
+    }
+
+    public interface Classifier {
+        String classify(double[] features);
+    }
+
+    private final SlidingWindow window;
+    private final WindowStats stats;
+    private final FeaturePlan plan;
+    private final Listener listener;
+    private final Classifier classifier;
+    private final double[] features;
+    private long windows = 0;
+
+    public FeatureStream(long windowSize, long hopSize, FeaturePlan plan, Listener listener) {
+        this(windowSize, hopSize, plan, null, listener);
+    }
+
+    public FeatureStream(long windowSize, long hopSize, FeaturePlan plan, Classifier classifier, Listener listener) {
+        this.plan = plan;
+        this.listener = listener;
+        this.classifier = classifier;
+        this.features = new double[plan.getFeatures().size()];
+        this.stats = new WindowStats(plan, hopSize < windowSize);
+        this.window = new SlidingWindow(windowSize, hopSize, new SlidingWindow.WindowListener() {
+            @Override
+            public void onWindow(SlidingWindow w, long start, long end) {
+                emit(w, start, end);
+            }
+
+            @Override
+            public void onEvict(SlidingWindow w, long seq) {
+                stats.evict(w, seq);
+            }
+        });
+    }
+
+    /*
+    * t in milliseconds, non-decreasing
+    * */
+    public void onSample(long t, double x, double y, double z) {
+        window.add(t, x, y, z);
+    }
+
+    /*
+    * Forgets the samples of the open window, e.g. after a gap in the stream
+    * */
+    public void reset() {
+        window.reset();
+    }
+
+    public long getWindowCount() {
+        return windows;
+    }
+
+    private void emit(SlidingWindow w, long start, long end) {
+        stats.update(w, start, end);
+        plan.compute(stats, features);
+        String activityLabel = classifier == null ? null : classifier.classify(features);
+        windows++;
+        listener.onFeatures(w.getT(start), w.getT(end - 1), features, activityLabel);
+    }
+}
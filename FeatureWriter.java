@@ -0,0 +1,114 @@
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Feature file sink that keeps the file open for the whole run.
+ * Rows are formatted into reusable batch buffers (FeatureRowFormatter); full batches go through
+ * a bounded queue to a background thread that writes them to disk, so feature computation only
+ * waits when the writer falls QUEUE_SIZE batches behind. Rows are appended, as Config.fileWrite does.
+ */
+public class FeatureWriter implements Closeable {
+
+    private static final int BATCH_SIZE = 1 << 18;
+    private static final int QUEUE_SIZE = 8;
+
+    private static final FeatureRowFormatter END = new FeatureRowFormatter();
+
+    private final OutputStream out;
+    private final BlockingQueue<FeatureRowFormatter> full = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final BlockingQueue<FeatureRowFormatter> free = new ArrayBlockingQueue<>(QUEUE_SIZE + 1);
+    private final Thread thread;
+    private volatile IOException error;
+    private boolean closed = false;
+
+    private FeatureRowFormatter batch = newBatch();
+
+    public FeatureWriter(String fileName) throws IOException {
+        this.out = new FileOutputStream(fileName, true);
+        this.thread = new Thread(this::drain, "feature-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public void writeRow(double[] f, String label, String activityLabel) throws IOException {
+        batch.appendRow(f, label, activityLabel);
+        if (batch.size() >= BATCH_SIZE)
+            handOff();
+    }
+
+    /*
+    * Appends rows formatted elsewhere, e.g. by a worker thread
+    * */
+    public void write(FeatureRowFormatter rows) throws IOException {
+        batch.appendBytes(rows.getBuffer(), 0, rows.size());
+        if (batch.size() >= BATCH_SIZE)
+            handOff();
+    }
+
+    private void handOff() throws IOException {
+        checkError();
+        put(batch);
+        FeatureRowFormatter next = free.poll();
+        batch = next != null ? next : newBatch();
+    }
+
+    private static FeatureRowFormatter newBatch() {
+        return new FeatureRowFormatter(BATCH_SIZE + (1 << 12));
+    }
+
+    private void put(FeatureRowFormatter b) throws IOException {
+        try {
+            full.put(b);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while queuing feature rows", e);
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                FeatureRowFormatter b = full.take();
+                if (b == END) break;
+                if (error == null) {
+                    try {
+                        out.write(b.getBuffer(), 0, b.size());
+                    } catch (IOException e) {
+                        error = e;
+                    }
+                }
+                b.reset();
+                free.offer(b);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkError() throws IOException {
+        if (error != null)
+            throw error;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            if (batch.size() > 0)
+                put(batch);
+            put(END);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing feature writer", e);
+        } finally {
+            out.close();
+        }
+        checkError();
+    }
+}
@@ -0,0 +1,89 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+
+/**
+ * Reads a raw HMP accelerometer file (lines of three space separated coded values 0..63)
+ * and streams the samples, in SI values, to a {@link SampleHandler}.
+ * The file is bulk-read in large chunks and the integers are parsed directly from bytes;
+ * coded values are converted through a 64-entry lookup table.
+ */
+public class HMPReader {
+
+    public interface SampleHandler {
+        void onSample(double x, double y, double z) throws IOException;
+    }
+
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private static final double[] SI_TABLE = new double[64];
+
+    static {
+        for (int i = 0; i < SI_TABLE.length; i++)
+            SI_TABLE[i] = ConvertADLDataSetToStreamProcessorData.convertSI(i);
+    }
+
+    private HMPReader() {
+    }
+
+    /*
+    * Parses the file chunk by chunk and hands every sample to the handler; memory use does not
+    * depend on the file size
+    * */
+    public static void stream(String fileName, SampleHandler handler) throws IOException {
+        stream(fileName, handler, null);
+    }
+
+    /*
+    * As stream(fileName, handler), also feeding the raw bytes to digest (when not null), so the
+    * file is hashed in the same read
+    * */
+    public static void stream(String fileName, SampleHandler handler, MessageDigest digest) throws IOException {
+        try (FileInputStream in = new FileInputStream(fileName)) {
+            parse(in.getChannel(), handler, digest);
+        }
+    }
+
+    private static void parse(FileChannel channel, SampleHandler handler, MessageDigest digest) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        int[] sample = new int[3];
+        int column = 0;
+        int value = 0;
+        boolean inNumber = false;
+
+        while (channel.read(buf) != -1) {
+            buf.flip();
+            if (digest != null)
+                digest.update(buf.duplicate());
+            while (buf.hasRemaining()) {
+                int c = buf.get() - '0';
+                if (c >= 0 && c <= 9) {
+                    value = value * 10 + c;
+                    inNumber = true;
+                } else if (inNumber) {
+                    sample[column++] = value;
+                    if (column == 3) {
+                        handler.onSample(toSI(sample[0]), toSI(sample[1]), toSI(sample[2]));
+                        column = 0;
+                    }
+                    value = 0;
+                    inNumber = false;
+                }
+            }
+            buf.clear();
+        }
+        if (inNumber) {
+            sample[column++] = value;
+            if (column == 3)
+                handler.onSample(toSI(sample[0]), toSI(sample[1]), toSI(sample[2]));
+        }
+    }
+
+    private static double toSI(int coded_val) {
+        if (coded_val < SI_TABLE.length)
+            return SI_TABLE[coded_val];
+        return ConvertADLDataSetToStreamProcessorData.convertSI(coded_val);
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.Random;
+
+/**
+ * Compares the scalar and the vector MomentKernels on the same random input: largest relative
+ * difference of every kernel and its throughput. The vector kernels need
+ * vector/VectorMomentKernels.java compiled and --add-modules jdk.incubator.vector.
+ * Usage: KernelBenchmark [length] [rounds]
+ */
+public class KernelBenchmark {
+
+    public static void main(String[] args) {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 160; // a 10 second window at 16hz
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+
+        MomentKernels scalar = MomentKernels.scalar();
+        MomentKernels vector = MomentKernels.vector();
+        if (vector == null) {
+            System.out.println("Vector kernels not available (compile vector/VectorMomentKernels.java and run with --add-modules jdk.incubator.vector)");
+            return;
+        }
+
+        Random random = new Random(42);
+        double[] x = new double[length];
+        double[] y = new double[length];
+        double[] z = new double[length];
+        for (int i = 0; i < length; i++) {
+            x[i] = random.nextGaussian() * 2;
+            y[i] = random.nextGaussian() * 2;
+            z[i] = 9.81 + random.nextGaussian();
+        }
+
+        double[] magS = new double[length];
+        double[] magV = new double[length];
+        scalar.magnitude(x, y, z, magS, length);
+        vector.magnitude(x, y, z, magV, length);
+        double magDiff = 0;
+        for (int i = 0; i < length; i++)
+            magDiff = Math.max(magDiff, relativeDiff(magS[i], magV[i]));
+        System.out.println("magnitude max rel diff      " + magDiff);
+
+        double mean = scalar.sum(magS, length) / length;
+        System.out.println("sum rel diff                " + relativeDiff(scalar.sum(magS, length), vector.sum(magS, length)));
+        System.out.println("sumOfSquares rel diff       " + relativeDiff(scalar.sumOfSquares(magS, length), vector.sumOfSquares(magS, length)));
+        double[] cmS = new double[3];
+        double[] cmV = new double[3];
+        scalar.centralMoments(magS, length, mean, cmS);
+        vector.centralMoments(magS, length, mean, cmV);
+        for (int k = 0; k < 3; k++)
+            System.out.println("M" + (k + 2) + " rel diff                 " + relativeDiff(cmS[k], cmV[k]));
+
+        for (MomentKernels kernels : new MomentKernels[]{scalar, vector, scalar, vector}) {
+            double sink = 0;
+            long startTime = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                kernels.magnitude(x, y, z, magS, length);
+                double m = kernels.sum(magS, length) / length;
+                kernels.centralMoments(magS, length, m, cmS);
+                sink += cmS[0] + kernels.sumOfSquares(x, length);
+            }
+            long nanos = System.nanoTime() - startTime;
+            System.out.println(kernels.getName() + ": " + String.format("%.3f", (double) nanos / rounds / length)
+                    + " ns/sample (" + sink + ")");
+        }
+    }
+
+    private static double relativeDiff(double a, double b) {
+        if (a == b) return 0;
+        return Math.abs(a - b) / Math.max(Math.abs(a), Math.abs(b));
+    }
+}
@@ -0,0 +1,255 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Bounded-memory quantile sketch (KLL: Karnin, Lang, Liberty, "Optimal Quantile Approximation in
+ * Streams", 2016) for corpus-scale percentiles without holding the values.
+ * Values enter level 0; a full level is sorted and every other value (random offset) is promoted
+ * to the next level with twice the weight. Level capacities shrink by 2/3 per level below the
+ * top, so the sketch holds O(k) values (about 3k) whatever the stream length. Sketches with the
+ * same k can be merged, e.g. per thread or per file, and the result is as accurate as a sketch of
+ * the concatenated streams.
+ * <p>
+ * Error bound: the rank of the value returned for quantile q is within eps * n of q * n, and
+ * getRank(v) is within eps of the true normalized rank, where eps = getNormalizedRankError(k)
+ * holds with probability ~99% per query (1.33% for the default k = 200, 0.65% for k = 400).
+ * Below the size of level 0 the sketch is exact. min and max are always exact.
+ * Missing values (StatisticsMathUtil.MISSG) and NaN are ignored. Not thread safe.
+ */
+public class KllSketch {
+
+    public static final int DEFAULT_K = 200;
+
+    private static final double CAPACITY_RATIO = 2.0 / 3.0;
+    private static final int MIN_CAPACITY = 8;
+
+    private final int k;
+    private final Random random;
+    private double[][] levels = new double[0][];
+    private int[] sizes = new int[0];
+    private long n = 0;
+    private int retained = 0;
+    private int maxRetained = 0;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    public KllSketch() {
+        this(DEFAULT_K, 1);
+    }
+
+    public KllSketch(int k, long seed) {
+        if (k < MIN_CAPACITY)
+            throw new IllegalArgumentException("k must be at least " + MIN_CAPACITY + ": " + k);
+        this.k = k;
+        this.random = new Random(seed);
+        addLevel();
+    }
+
+    /*
+    * Normalized rank error bound with ~99% confidence for a single query, for parameter k
+    * (empirical fit of the KLL error, as published for the DataSketches implementation)
+    * */
+    public static double getNormalizedRankError(int k) {
+        return 2.296 / Math.pow(k, 0.9723);
+    }
+
+    public void add(double x) {
+        if (x == StatisticsMathUtil.MISSG || Double.isNaN(x))
+            return;
+        if (n == 0 || x < min) min = x;
+        if (n == 0 || x > max) max = x;
+        n++;
+        append(0, x);
+        if (retained >= maxRetained)
+            compress();
+    }
+
+    public void addAll(double[] data, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            add(data[i]);
+    }
+
+    /*
+    * Adds the values summarized by other (same k)
+    * */
+    public void merge(KllSketch other) {
+        if (other.k != k)
+            throw new IllegalArgumentException("Cannot merge sketches with k " + k + " and " + other.k);
+        if (other.n == 0)
+            return;
+        if (n == 0 || other.min < min) min = other.min;
+        if (n == 0 || other.max > max) max = other.max;
+        n += other.n;
+        while (levels.length < other.levels.length)
+            addLevel();
+        for (int h = 0; h < other.levels.length; h++) {
+            for (int i = 0; i < other.sizes[h]; i++)
+                append(h, other.levels[h][i]);
+        }
+        while (retained >= maxRetained)
+            compress();
+    }
+
+    public long getCount() {
+        return n;
+    }
+
+    public int getRetained() {
+        return retained;
+    }
+
+    public double getMin() {
+        return n == 0 ? StatisticsMathUtil.MISSG : min;
+    }
+
+    public double getMax() {
+        return n == 0 ? StatisticsMathUtil.MISSG : max;
+    }
+
+    /*
+    * Estimated fraction of the values <= value
+    * */
+    public double getRank(double value) {
+        if (n == 0)
+            return StatisticsMathUtil.MISSG;
+        long weight = 0;
+        for (int h = 0; h < levels.length; h++) {
+            for (int i = 0; i < sizes[h]; i++) {
+                if (levels[h][i] <= value)
+                    weight += 1L << h;
+            }
+        }
+        return (double) weight / totalWeight();
+    }
+
+    /*
+    * Value whose estimated normalized rank is q (0 = min, 1 = max); MISSG when empty
+    * */
+    public double getQuantile(double q) {
+        double[] out = new double[1];
+        getQuantiles(new double[]{q}, out);
+        return out[0];
+    }
+
+    /*
+    * Several quantiles from one sorted view of the sketch; qs in any order
+    * */
+    public void getQuantiles(double[] qs, double[] out) {
+        if (n == 0) {
+            Arrays.fill(out, 0, qs.length, StatisticsMathUtil.MISSG);
+            return;
+        }
+
+        // merge the sorted levels into one sorted view with cumulative weights
+        double[] values = new double[retained];
+        long[] cumulative = new long[retained];
+        double[] merged = new double[retained];
+        long[] mergedCumulative = new long[retained];
+        int m = 0;
+        for (int h = 0; h < levels.length; h++) {
+            int size = sizes[h];
+            if (size == 0)
+                continue;
+            double[] level = Arrays.copyOf(levels[h], size);
+            Arrays.sort(level);
+            long weight = 1L << h;
+            long sum = 0;
+            int i = 0;
+            int j = 0;
+            int o = 0;
+            while (i < m || j < size) {
+                if (j == size || (i < m && values[i] <= level[j])) {
+                    sum += cumulative[i] - (i == 0 ? 0 : cumulative[i - 1]);
+                    merged[o] = values[i++];
+                } else {
+                    sum += weight;
+                    merged[o] = level[j++];
+                }
+                mergedCumulative[o++] = sum;
+            }
+            m = o;
+            double[] tv = values;
+            values = merged;
+            merged = tv;
+            long[] tc = cumulative;
+            cumulative = mergedCumulative;
+            mergedCumulative = tc;
+        }
+        long sum = cumulative[m - 1];
+
+        for (int j = 0; j < qs.length; j++) {
+            double q = qs[j];
+            if (!(q >= 0 && q <= 1))
+                throw new IllegalArgumentException("quantile must be in [0, 1]: " + q);
+            if (q == 0) {
+                out[j] = min;
+            } else if (q == 1) {
+                out[j] = max;
+            } else {
+                long target = (long) Math.ceil(q * sum);
+                int idx = Arrays.binarySearch(cumulative, 0, m, Math.max(target, 1));
+                if (idx < 0) idx = -idx - 1;
+                out[j] = values[Math.min(idx, m - 1)];
+            }
+        }
+    }
+
+    private long totalWeight() {
+        long sum = 0;
+        for (int h = 0; h < levels.length; h++)
+            sum += (long) sizes[h] << h;
+        return sum;
+    }
+
+    private int capacity(int h) {
+        int depth = levels.length - h - 1;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_RATIO, depth)));
+    }
+
+    private void addLevel() {
+        int h = levels.length;
+        levels = Arrays.copyOf(levels, h + 1);
+        sizes = Arrays.copyOf(sizes, h + 1);
+        levels[h] = new double[MIN_CAPACITY];
+        maxRetained = 0;
+        for (int i = 0; i <= h; i++)
+            maxRetained += capacity(i);
+    }
+
+    private void append(int h, double x) {
+        if (sizes[h] == levels[h].length)
+            levels[h] = Arrays.copyOf(levels[h], levels[h].length * 2);
+        levels[h][sizes[h]++] = x;
+        retained++;
+    }
+
+    /*
+    * Compacts the lowest level that is over capacity (levels are only touched when full)
+    * */
+    private void compress() {
+        for (int h = 0; h < levels.length; h++) {
+            if (sizes[h] < capacity(h))
+                continue;
+            if (h + 1 == levels.length)
+                addLevel();
+
+            double[] level = levels[h];
+            int size = sizes[h];
+            // an odd value out stays at this level
+            int pairs = size / 2;
+            Arrays.sort(level, 0, size);
+            int offset = random.nextBoolean() ? 1 : 0;
+            for (int i = 0; i < pairs; i++)
+                append(h + 1, level[2 * i + offset]);
+            if ((size & 1) == 1) {
+                level[0] = level[size - 1];
+                sizes[h] = 1;
+            } else {
+                sizes[h] = 0;
+            }
+            retained -= 2 * pairs;
+            return;
+        }
+    }
+
+}
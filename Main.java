@@ -15,9 +15,13 @@ public class Main {
         String featureFileName = "Extrasensory-activity-featurefile-all_1000_simple.csv";
 
         int windowSize = 10 * 1000; // 10 seconds
-        String featureNames = "mean,median,sd,sd_x,sd_y,sd_z,skew,kurt,rateOfChange,actualActivity,activityLabel";
-        Config.fileWrite(outDir + featureFileName, featureNames);
-        ActivityFeatures.doProcess(outDir, outDir + featureFileName, windowSize);
+        int hopSize = windowSize; // tumbling windows; e.g. 1000 for a 10 second window every second
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        FeaturePlan features = new FeaturePlan(FeatureRegistry.DEFAULT_FEATURES); // or e.g. Arrays.asList("mean", "sd", "dominantFrequency")
+        Config.fileWrite(outDir + featureFileName, features.header());
+        ActivityFeatures.doProcess(outDir, outDir + featureFileName, windowSize, hopSize, parallelism, features);
+//        int[] sweepWindowSizes = {2 * 1000, 5 * 1000, 10 * 1000, 30 * 1000}; // one file per size, read once
+//        ActivityFeatures.doSweep(outDir, outDir + featureFileName, sweepWindowSizes, false, parallelism, features);
 
     }
 
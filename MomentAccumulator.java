@@ -0,0 +1,132 @@
+/**
+ * Mergeable accumulator of count, mean and central moment sums M2..M4 of a sequence.
+ * Values are added one at a time (online update, Terriberry) or as array ranges, and partial
+ * accumulators from other threads, files or windows are combined with merge (pairwise update,
+ * Chan et al. for M2, Pebay for M3 and M4), so statistics can be reduced in one pass.
+ * variance/stdev/skew/kurt follow the definitions of StatisticsMathUtil var/stdev/skew/kurt.
+ * Missing values (StatisticsMathUtil.MISSG) are skipped, as those functions document. Their code,
+ * however, adds MISSG into the sums like any other value, so the results differ from avg/var/
+ * stdev/skew/kurt for data that contains MISSG; without MISSG (e.g. the feature windows) they agree.
+ * Not thread safe; use one per task and merge.
+ */
+public class MomentAccumulator {
+
+    private long n = 0;
+    private double mean = 0;
+    private double m2 = 0;
+    private double m3 = 0;
+    private double m4 = 0;
+
+    public void add(double x) {
+        if (x == StatisticsMathUtil.MISSG)
+            return;
+        long n1 = n;
+        n++;
+        double delta = x - mean;
+        double deltaN = delta / n;
+        double deltaN2 = deltaN * deltaN;
+        double term1 = delta * deltaN * n1;
+        mean += deltaN;
+        m4 += term1 * deltaN2 * ((double) n * n - 3 * n + 3) + 6 * deltaN2 * m2 - 4 * deltaN * m3;
+        m3 += term1 * deltaN * (n - 2) - 3 * deltaN * m2;
+        m2 += term1;
+    }
+
+    public void addAll(double[] data, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            add(data[i]);
+    }
+
+    /*
+    * Adds the values accumulated by other, as if they had been added to this one
+    * */
+    public void merge(MomentAccumulator other) {
+        if (other.n == 0)
+            return;
+        if (n == 0) {
+            n = other.n;
+            mean = other.mean;
+            m2 = other.m2;
+            m3 = other.m3;
+            m4 = other.m4;
+            return;
+        }
+
+        double na = n;
+        double nb = other.n;
+        double nt = na + nb;
+        double delta = other.mean - mean;
+        double delta2 = delta * delta;
+
+        double newM4 = m4 + other.m4
+                + delta2 * delta2 * na * nb * (na * na - na * nb + nb * nb) / (nt * nt * nt)
+                + 6 * delta2 * (na * na * other.m2 + nb * nb * m2) / (nt * nt)
+                + 4 * delta * (na * other.m3 - nb * m3) / nt;
+        double newM3 = m3 + other.m3
+                + delta2 * delta * na * nb * (na - nb) / (nt * nt)
+                + 3 * delta * (na * other.m2 - nb * m2) / nt;
+        double newM2 = m2 + other.m2 + delta2 * na * nb / nt;
+
+        n += other.n;
+        mean += delta * nb / nt;
+        m2 = newM2;
+        m3 = newM3;
+        m4 = newM4;
+    }
+
+    public void clear() {
+        n = 0;
+        mean = m2 = m3 = m4 = 0;
+    }
+
+    public long getCount() {
+        return n;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    /*
+    * Central moment sums: sum of (x - mean)^2, ^3, ^4
+    * */
+    public double getM2() {
+        return m2;
+    }
+
+    public double getM3() {
+        return m3;
+    }
+
+    public double getM4() {
+        return m4;
+    }
+
+    /*
+    * Sample variance (n - 1), 0 below two values
+    * */
+    public double getVariance() {
+        if (n < 2)
+            return 0;
+        return m2 / (n - 1);
+    }
+
+    public double getStdev() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getSkew() {
+        double sd = getStdev();
+        if (n < 3 || sd == 0)
+            return 0;
+        return m3 / (sd * sd * sd) * n / ((n - 1.0) * (n - 2.0));
+    }
+
+    public double getKurt() {
+        double sd = getStdev();
+        if (n < 4 || sd == 0)
+            return 0;
+        double kurt = m4 / (sd * sd * sd * sd) * n * (n + 1.0) / (n - 1.0) - 3 * (n - 1.0) * (n - 1.0);
+        return kurt / ((n - 2.0) * (n - 3.0));
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Array kernels behind the magnitude and moment computations of a window: magnitude, sum, sum of
+ * squares and the central moment sums M2..M4 (two-pass, around a given mean).
+ * The scalar implementation is always available; the SIMD one (vector/VectorMomentKernels.java,
+ * jdk.incubator.vector) is compiled separately and loaded by name, so this tree builds and runs
+ * on any JDK. KernelBenchmark compares both on the same input.
+ */
+public interface MomentKernels {
+
+    String VECTOR_CLASS = "VectorMomentKernels";
+
+    String getName();
+
+    /*
+    * out[i] = sqrt(x[i]^2 + y[i]^2 + z[i]^2) for i < n
+    * */
+    void magnitude(double[] x, double[] y, double[] z, double[] out, int n);
+
+    double sum(double[] a, int n);
+
+    double sumOfSquares(double[] a, int n);
+
+    /*
+    * Sum of (a[i] - mean)^2
+    * */
+    double sumOfSquaredDeviations(double[] a, int n, double mean);
+
+    /*
+    * out[0..2] = sums of (a[i] - mean)^2, ^3 and ^4
+    * */
+    void centralMoments(double[] a, int n, double mean, double[] out);
+
+    /*
+    * Kernels selected by Config.USE_VECTOR_KERNELS
+    * */
+    static MomentKernels get() {
+        return Holder.SELECTED;
+    }
+
+    static MomentKernels scalar() {
+        return ScalarMomentKernels.INSTANCE;
+    }
+
+    /*
+    * The SIMD kernels, or null when the class or the incubator module is not available
+    * */
+    static MomentKernels vector() {
+        try {
+            return (MomentKernels) Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    final class Holder {
+        static final MomentKernels SELECTED = select();
+
+        private static MomentKernels select() {
+            if (!Config.USE_VECTOR_KERNELS)
+                return scalar();
+            MomentKernels vector = vector();
+            if (vector != null)
+                return vector;
+            System.out.println("Vector kernels not available, using scalar kernels");
+            return scalar();
+        }
+
+        private Holder() {
+        }
+    }
+}
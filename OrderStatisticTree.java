@@ -0,0 +1,212 @@
+import java.util.Arrays;
+
+/**
+ * Multiset of doubles with order-statistic queries, for sliding windows where values are
+ * inserted and evicted one at a time. Implemented as a size-augmented treap stored in
+ * primitive arrays; insert, remove, select, median and percentile take O(log n) expected time.
+ * median and percentile follow the definitions of StatisticsMathUtil.
+ */
+public class OrderStatisticTree {
+
+    private static final int NIL = 0;
+
+    private double[] key;
+    private int[] prio;
+    private int[] left;
+    private int[] right;
+    private int[] size;
+
+    private int root = NIL;
+    private int free = NIL;     // head of the free list, linked through left[]
+    private int allocated = 0;  // highest node index in use
+    private int seed = 0x2545F491;
+
+    // results of split()
+    private int splitLeft;
+    private int splitRight;
+
+    public OrderStatisticTree() {
+        this(256);
+    }
+
+    public OrderStatisticTree(int capacity) {
+        capacity = Math.max(capacity, 2) + 1; // node 0 is the NIL sentinel
+        key = new double[capacity];
+        prio = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        size = new int[capacity];
+    }
+
+    public int size() {
+        return size[root];
+    }
+
+    public void clear() {
+        root = NIL;
+        free = NIL;
+        allocated = 0;
+    }
+
+    public void insert(double value) {
+        int node = newNode(value);
+        split(root, value);
+        int l = splitLeft, r = splitRight;
+        root = merge(merge(l, node), r);
+    }
+
+    /*
+    * Removes one occurrence of value; returns false when it is not present
+    * */
+    public boolean remove(double value) {
+        int node = find(value);
+        if (node == NIL) return false;
+        root = delete(root, value);
+        return true;
+    }
+
+    /*
+    * k-th smallest value, 0-based
+    * */
+    public double select(int k) {
+        if (k < 0 || k >= size())
+            throw new IndexOutOfBoundsException("k = " + k + ", size = " + size());
+        int node = root;
+        while (true) {
+            int ls = size[left[node]];
+            if (k < ls) {
+                node = left[node];
+            } else if (k == ls) {
+                return key[node];
+            } else {
+                k -= ls + 1;
+                node = right[node];
+            }
+        }
+    }
+
+    public double median() {
+        int n = size();
+        if (n == 0)
+            return 0;
+        int midIndex = n / 2;
+        if (n % 2 == 0)
+            return (select(midIndex) + select(midIndex - 1)) / 2;
+        return select(midIndex);
+    }
+
+    public double percentile(double percent) {
+        int n = size();
+        if (n == 0)
+            return 0;
+        if (percent == 0.)
+            return select(0);
+        if (percent == 1.)
+            return select(n - 1);
+
+        double temp = percent * (double) n;
+        double floor = Math.floor(temp);
+        int midIndex = (int) floor;
+        if (floor != temp && midIndex > 0) {
+            double lower = select(midIndex - 1);
+            return lower + (select(midIndex) - lower) * (temp - floor);
+        }
+        return select(midIndex);
+    }
+
+    private int find(double value) {
+        int node = root;
+        while (node != NIL) {
+            if (value < key[node]) node = left[node];
+            else if (value > key[node]) node = right[node];
+            else return node;
+        }
+        return NIL;
+    }
+
+    /*
+    * Splits t into splitLeft (keys < value) and splitRight (keys >= value)
+    * */
+    private void split(int t, double value) {
+        if (t == NIL) {
+            splitLeft = NIL;
+            splitRight = NIL;
+        } else if (key[t] < value) {
+            split(right[t], value);
+            right[t] = splitLeft;
+            update(t);
+            splitLeft = t;
+        } else {
+            split(left[t], value);
+            left[t] = splitRight;
+            update(t);
+            splitRight = t;
+        }
+    }
+
+    private int merge(int a, int b) {
+        if (a == NIL) return b;
+        if (b == NIL) return a;
+        if (prio[a] > prio[b]) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+
+    private int delete(int t, double value) {
+        if (key[t] == value) {
+            int merged = merge(left[t], right[t]);
+            release(t);
+            return merged;
+        }
+        if (value < key[t])
+            left[t] = delete(left[t], value);
+        else
+            right[t] = delete(right[t], value);
+        update(t);
+        return t;
+    }
+
+    private void update(int t) {
+        size[t] = size[left[t]] + size[right[t]] + 1;
+    }
+
+    private int newNode(double value) {
+        int node;
+        if (free != NIL) {
+            node = free;
+            free = left[node];
+        } else {
+            node = ++allocated;
+            if (node == key.length)
+                grow();
+        }
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        key[node] = value;
+        prio[node] = seed;
+        left[node] = NIL;
+        right[node] = NIL;
+        size[node] = 1;
+        return node;
+    }
+
+    private void release(int node) {
+        left[node] = free;
+        free = node;
+    }
+
+    private void grow() {
+        int capacity = key.length * 2;
+        key = Arrays.copyOf(key, capacity);
+        prio = Arrays.copyOf(prio, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        size = Arrays.copyOf(size, capacity);
+    }
+}
@@ -0,0 +1,178 @@
+import java.util.Arrays;
+
+/**
+ * Selection of order statistics in expected linear time, in place on a caller-supplied array.
+ * select(a, from, to, k) rearranges a[from, to) so that a[k] holds the value it would have after
+ * sorting the range, everything before it is <= a[k] and everything after it >= a[k].
+ * Large ranges use Floyd-Rivest (the pivot is chosen by recursing on a small sample that
+ * brackets k), smaller ones introselect: median-of-3 quickselect that falls back to sorting the
+ * range when it runs out of its O(log n) partitioning budget, so the worst case is O(n log n).
+ * selectAll places several ranks at once, each partition step narrowing the range for the others.
+ * NaN values are not supported.
+ */
+public class OrderStatistics {
+
+    private static final int FLOYD_RIVEST_CUTOFF = 600;
+    private static final int INSERTION_SORT_CUTOFF = 16;
+
+    private OrderStatistics() {
+    }
+
+    /*
+    * Places the k-th smallest (0-based) of a[from, to) at a[k] and returns it
+    * */
+    public static double select(double[] a, int from, int to, int k) {
+        if (k < from || k >= to)
+            throw new IllegalArgumentException("rank " + k + " outside [" + from + ", " + to + ")");
+        floydRivest(a, from, to - 1, k, 2 * log2(to - from) + 8);
+        return a[k];
+    }
+
+    /*
+    * Places every rank of ranks (ascending, 0-based, within [from, to)) at its sorted position
+    * */
+    public static void selectAll(double[] a, int from, int to, int[] ranks) {
+        selectAll(a, from, to, ranks, 0, ranks.length);
+    }
+
+    public static void selectAll(double[] a, int from, int to, int[] ranks, int rankFrom, int rankTo) {
+        while (rankFrom < rankTo && ranks[rankFrom] < from)
+            rankFrom++;
+        while (rankTo > rankFrom && ranks[rankTo - 1] >= to)
+            rankTo--;
+        if (rankFrom >= rankTo)
+            return;
+
+        int m = (rankFrom + rankTo) >>> 1;
+        int k = ranks[m];
+        select(a, from, to, k);
+        selectAll(a, from, k, ranks, rankFrom, m);
+        selectAll(a, k + 1, to, ranks, m + 1, rankTo);
+    }
+
+    /*
+    * Largest value of a[from, to); after select(a, ., ., k) the (k-1)-th smallest is max(a, from, k)
+    * */
+    public static double max(double[] a, int from, int to) {
+        double max = a[from];
+        for (int i = from + 1; i < to; i++) {
+            if (a[i] > max)
+                max = a[i];
+        }
+        return max;
+    }
+
+    public static double min(double[] a, int from, int to) {
+        double min = a[from];
+        for (int i = from + 1; i < to; i++) {
+            if (a[i] < min)
+                min = a[i];
+        }
+        return min;
+    }
+
+    /*
+    * Floyd & Rivest, "Algorithm 489: SELECT", right inclusive
+    * */
+    private static void floydRivest(double[] a, int left, int right, int k, int budget) {
+        while (right > left) {
+            if (right - left <= FLOYD_RIVEST_CUTOFF) {
+                introSelect(a, left, right, k);
+                return;
+            }
+            if (budget-- == 0) {
+                Arrays.sort(a, left, right + 1);
+                return;
+            }
+
+            int n = right - left + 1;
+            int i = k - left + 1;
+            double z = Math.log(n);
+            double s = 0.5 * Math.exp(2 * z / 3);
+            double sd = 0.5 * Math.sqrt(z * s * (n - s) / n) * Math.signum(i - n / 2.0);
+            int newLeft = Math.max(left, (int) (k - i * s / n + sd));
+            int newRight = Math.min(right, (int) (k + (n - i) * s / n + sd));
+            floydRivest(a, newLeft, newRight, k, budget);
+
+            double t = a[k];
+            int lo = left;
+            int hi = right;
+            swap(a, left, k);
+            if (a[right] > t)
+                swap(a, right, left);
+            while (lo < hi) {
+                swap(a, lo, hi);
+                lo++;
+                hi--;
+                while (a[lo] < t) lo++;
+                while (a[hi] > t) hi--;
+            }
+            if (a[left] == t) {
+                swap(a, left, hi);
+            } else {
+                hi++;
+                swap(a, hi, right);
+            }
+            if (hi <= k) left = hi + 1;
+            if (k <= hi) right = hi - 1;
+        }
+    }
+
+    private static void introSelect(double[] a, int left, int right, int k) {
+        int budget = 2 * log2(right - left + 1);
+        while (right > left) {
+            if (right - left < INSERTION_SORT_CUTOFF) {
+                insertionSort(a, left, right);
+                return;
+            }
+            if (budget-- == 0) {
+                Arrays.sort(a, left, right + 1);
+                return;
+            }
+
+            int mid = (left + right) >>> 1;
+            if (a[mid] < a[left]) swap(a, mid, left);
+            if (a[right] < a[left]) swap(a, right, left);
+            if (a[right] < a[mid]) swap(a, right, mid);
+            double pivot = a[mid];
+
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (a[i] < pivot) i++;
+                while (a[j] > pivot) j--;
+                if (i <= j) {
+                    swap(a, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            // a[left..j] <= pivot, a[i..right] >= pivot, anything in between == pivot
+            if (k <= j) right = j;
+            else if (k >= i) left = i;
+            else return;
+        }
+    }
+
+    private static void insertionSort(double[] a, int left, int right) {
+        for (int i = left + 1; i <= right; i++) {
+            double v = a[i];
+            int j = i - 1;
+            while (j >= left && a[j] > v) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = v;
+        }
+    }
+
+    private static void swap(double[] a, int i, int j) {
+        double t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    private static int log2(int n) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(n, 1));
+    }
+}
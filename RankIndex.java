@@ -0,0 +1,164 @@
+import java.util.Arrays;
+
+/**
+ * Sorted copy of a data array, without missing values (StatisticsMathUtil.MISSG), for repeated
+ * rank queries against the same reference distribution. Built once in O(n log n); rank,
+ * percentileOfScore and the counts are binary searches in O(log n), and ranks/percentilesOfScore
+ * rank a whole array of values with one sort of the values and one merge pass over the data.
+ * rank has the semantics of StatisticsMathUtil.rank: 1-based, counted from the top, i.e.
+ * 1 + the number of values greater than the ranked value.
+ */
+public class RankIndex {
+
+    private final double[] sorted;
+
+    public RankIndex(double[] data) {
+        this(data, 0, data.length);
+    }
+
+    public RankIndex(double[] data, int off, int len) {
+        double[] values = new double[len];
+        int n = 0;
+        for (int i = off; i < off + len; i++) {
+            if (data[i] != StatisticsMathUtil.MISSG)
+                values[n++] = data[i];
+        }
+        sorted = n == len ? values : Arrays.copyOf(values, n);
+        Arrays.sort(sorted);
+    }
+
+    public int size() {
+        return sorted.length;
+    }
+
+    /*
+    * Number of values < value
+    * */
+    public int countBelow(double value) {
+        return lowerBound(value);
+    }
+
+    /*
+    * Number of values <= value
+    * */
+    public int countAtMost(double value) {
+        return upperBound(value);
+    }
+
+    /*
+    * Number of values > value
+    * */
+    public int countAbove(double value) {
+        return sorted.length - upperBound(value);
+    }
+
+    /*
+    * 1 + number of values > value; MISSG for a missing value or an empty index
+    * */
+    public double rank(double value) {
+        if (value == StatisticsMathUtil.MISSG || sorted.length == 0)
+            return StatisticsMathUtil.MISSG;
+        return 1 + countAbove(value);
+    }
+
+    /*
+    * Fraction of the values below value, ties counted as half: (below + equal / 2) / n, in [0, 1]
+    * like the percents of StatisticsMathUtil.percentile; MISSG for a missing value or an empty index
+    * */
+    public double percentileOfScore(double value) {
+        if (value == StatisticsMathUtil.MISSG || sorted.length == 0)
+            return StatisticsMathUtil.MISSG;
+        return (lowerBound(value) + upperBound(value)) * 0.5 / sorted.length;
+    }
+
+    /*
+    * out[i] = rank(values[i])
+    * */
+    public void ranks(double[] values, double[] out) {
+        int m = values.length;
+        double[] queries = new double[m];
+        int[] below = new int[m];
+        int[] atMost = new int[m];
+        int q = counts(values, queries, below, atMost);
+        for (int i = 0; i < m; i++) {
+            if (values[i] == StatisticsMathUtil.MISSG || sorted.length == 0) {
+                out[i] = StatisticsMathUtil.MISSG;
+            } else {
+                int j = Arrays.binarySearch(queries, 0, q, values[i]);
+                out[i] = j < 0 ? rank(values[i]) : 1 + sorted.length - atMost[j];
+            }
+        }
+    }
+
+    /*
+    * out[i] = percentileOfScore(values[i])
+    * */
+    public void percentilesOfScore(double[] values, double[] out) {
+        int m = values.length;
+        double[] queries = new double[m];
+        int[] below = new int[m];
+        int[] atMost = new int[m];
+        int q = counts(values, queries, below, atMost);
+        for (int i = 0; i < m; i++) {
+            if (values[i] == StatisticsMathUtil.MISSG || sorted.length == 0) {
+                out[i] = StatisticsMathUtil.MISSG;
+            } else {
+                int j = Arrays.binarySearch(queries, 0, q, values[i]);
+                out[i] = j < 0 ? percentileOfScore(values[i]) : (below[j] + atMost[j]) * 0.5 / sorted.length;
+            }
+        }
+    }
+
+    /*
+    * Sorts the distinct non-missing values into queries and fills below/atMost for each of them
+    * in one pass over the data; returns the number of distinct queries. NaN is left out
+    * */
+    private int counts(double[] values, double[] queries, int[] below, int[] atMost) {
+        int q = 0;
+        for (double v : values) {
+            if (v != StatisticsMathUtil.MISSG && !Double.isNaN(v))
+                queries[q++] = v;
+        }
+        Arrays.sort(queries, 0, q);
+        int distinct = 0;
+        for (int i = 0; i < q; i++) {
+            if (distinct == 0 || queries[i] != queries[distinct - 1])
+                queries[distinct++] = queries[i];
+        }
+
+        int n = sorted.length;
+        int lo = 0;
+        for (int i = 0; i < distinct; i++) {
+            double v = queries[i];
+            while (lo < n && sorted[lo] < v) lo++;
+            int hi = lo;
+            while (hi < n && sorted[hi] == v) hi++;
+            below[i] = lo;
+            atMost[i] = hi;
+            lo = hi;
+        }
+        return distinct;
+    }
+
+    private int lowerBound(double value) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int upperBound(double value) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
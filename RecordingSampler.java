@@ -0,0 +1,102 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Selects up to quota recording directories of a label directory, uniformly at random, by
+ * bottom-k sampling over a lazily iterated DirectoryStream: every name gets a pseudo-random
+ * 64-bit key hashed from the seed, the label and the name, and the quota names with the smallest
+ * keys are kept in a bounded heap. Memory is O(quota) whatever the number of entries, and no
+ * File[] of the whole directory is built. The selection depends only on the seed and the set of
+ * names, not on the order the file system lists them in or the order labels are sampled in, so
+ * it is the same on every machine and copy of the data. Staging and replaced directories of an
+ * interrupted incremental conversion (*.tmp, *.old) are not recordings and are skipped.
+ * The selected names are returned sorted.
+ */
+public class RecordingSampler {
+
+    private final long seed;
+
+    public RecordingSampler(long seed) {
+        this.seed = seed;
+    }
+
+    private static class Candidate implements Comparable<Candidate> {
+        final long key;
+        final String name;
+
+        Candidate(long key, String name) {
+            this.key = key;
+            this.name = name;
+        }
+
+        @Override
+        public int compareTo(Candidate o) {
+            int c = Long.compareUnsigned(key, o.key);
+            return c != 0 ? c : name.compareTo(o.name);
+        }
+    }
+
+    public List<String> sample(String labelDir, String label, int quota) throws IOException {
+        List<String> selected = new ArrayList<>(Math.max(0, Math.min(quota, 1024)));
+        if (quota <= 0)
+            return selected;
+
+        long labelSeed = hash(seed, label);
+        // max-heap: the head is the largest key kept so far
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(Math.min(quota, 1024), Collections.reverseOrder());
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(Paths.get(labelDir))) {
+            for (Path entry : entries) {
+                if (!Files.isDirectory(entry)) continue;
+                String name = entry.getFileName().toString();
+                if (isConversionLeftover(name)) continue;
+                Candidate c = new Candidate(hash(labelSeed, name), name);
+                if (heap.size() < quota) {
+                    heap.add(c);
+                } else if (c.compareTo(heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(c);
+                }
+            }
+        }
+        for (Candidate c : heap)
+            selected.add(c.name);
+        Collections.sort(selected);
+        return selected;
+    }
+
+    /*
+    * Staging or replaced directory an interrupted incremental conversion may have left behind
+    * */
+    static boolean isConversionLeftover(String name) {
+        return name.endsWith(ConvertADLDataSetToStreamProcessorData.STAGING_SUFFIX)
+                || name.endsWith(ConvertADLDataSetToStreamProcessorData.REPLACED_SUFFIX);
+    }
+
+    /*
+    * 64-bit hash of s seeded with h (the chars folded in, then the SplitMix64 finalizer)
+    * */
+    private static long hash(long h, String s) {
+        for (int i = 0; i < s.length(); i++)
+            h = (h ^ s.charAt(i)) * 0x100000001B3L + 0x9E3779B97F4A7C15L;
+        h ^= s.length();
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    /*
+    * Quota of a label, from Config.EXTRASENSORY_recordingQuota by the label's class
+    * */
+    public static int quota(String label) {
+        String activityClass = Config.EXTRASENSORY_labelMap.get(label);
+        Integer quota = activityClass == null ? null : Config.EXTRASENSORY_recordingQuota.get(activityClass);
+        return quota == null ? Config.DEFAULT_RECORDING_QUOTA : quota;
+    }
+}
@@ -0,0 +1,159 @@
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming rational sample rate converter for x/y/z accelerometer samples.
+ * The rate ratio outRate/inRate is reduced to L/M and the samples go through a polyphase,
+ * Blackman windowed-sinc low-pass filter (anti-alias when decimating, anti-image when
+ * interpolating). Every output sample is passed to the writer as soon as its inputs have
+ * arrived, with timestamp = index * 1000 / outRate milliseconds, so only the last few input
+ * samples are held in memory. Filtering a sample does not allocate.
+ *
+ * The filter is centered (zero phase); before the first and after the last input sample the
+ * signal is extended with the edge values. A recording of n input samples produces every
+ * output sample whose time lies within the recording, e.g. ceil(n/2) samples for 32hz to 16hz.
+ */
+public class Resampler {
+
+    public static final int DEFAULT_HALF_TAPS = 16;
+
+    private static final double CUTOFF_SCALE = 0.9;
+
+    private static final Map<String, double[][]> FILTER_CACHE = new ConcurrentHashMap<>();
+
+    private final int up;        // L
+    private final int down;      // M
+    private final int delay;     // D, filter center on the upsampled grid
+    private final double outDelta;
+    private final double[][] phases;
+    private final int taps;
+
+    private final double[] hx;
+    private final double[] hy;
+    private final double[] hz;
+    private final int mask;
+
+    private final SampleWriter writer;
+
+    private long newest = -1;   // index of the latest input sample
+    private long next = 0;      // index of the next output sample
+
+    public Resampler(int inRate, int outRate, SampleWriter writer) {
+        this(inRate, outRate, DEFAULT_HALF_TAPS, writer);
+    }
+
+    public Resampler(int inRate, int outRate, int halfTaps, SampleWriter writer) {
+        if (inRate <= 0 || outRate <= 0)
+            throw new IllegalArgumentException("Sampling rates must be positive: " + inRate + " -> " + outRate);
+        int g = gcd(inRate, outRate);
+        this.up = outRate / g;
+        this.down = inRate / g;
+        this.delay = up * halfTaps;
+        this.outDelta = 1000.0 / outRate;
+        this.phases = filter(up, down, halfTaps);
+        this.taps = phases[0].length;
+        this.writer = writer;
+
+        int size = Integer.highestOneBit(taps) << 1;
+        this.hx = new double[size];
+        this.hy = new double[size];
+        this.hz = new double[size];
+        this.mask = size - 1;
+    }
+
+    public void add(double x, double y, double z) throws IOException {
+        newest++;
+        int i = (int) (newest & mask);
+        hx[i] = x;
+        hy[i] = y;
+        hz[i] = z;
+
+        while (inputIndex(next) <= newest)
+            emit(next++);
+    }
+
+    /*
+    * Writes the remaining output samples of the recording; the writer is not closed
+    * */
+    public void finish() throws IOException {
+        if (newest < 0) return;
+        while (next * down <= newest * up)
+            emit(next++);
+    }
+
+    public long getOutputCount() {
+        return next;
+    }
+
+    private long inputIndex(long j) {
+        return (j * down + delay) / up;
+    }
+
+    private void emit(long j) throws IOException {
+        long m = j * down + delay;
+        long n = m / up;
+        double[] coef = phases[(int) (m - n * up)];
+
+        double x = 0, y = 0, z = 0;
+        for (int k = 0; k < taps; k++) {
+            long idx = n - k;
+            if (idx > newest) idx = newest;
+            else if (idx < 0) idx = 0;
+            int i = (int) (idx & mask);
+            double c = coef[k];
+            x += c * hx[i];
+            y += c * hy[i];
+            z += c * hz[i];
+        }
+        writer.write(j * outDelta, x, y, z);
+    }
+
+    /*
+    * Polyphase table: phases[p][k] = h[p + k * L] of a windowed-sinc low-pass of length
+    * 2 * L * halfTaps + 1, every phase normalized to unit DC gain
+    * */
+    private static double[][] filter(int up, int down, int halfTaps) {
+        String key = up + "/" + down + "/" + halfTaps;
+        double[][] phases = FILTER_CACHE.get(key);
+        if (phases != null) return phases;
+
+        int length = 2 * up * halfTaps + 1;
+        int center = up * halfTaps;
+        double cutoff = CUTOFF_SCALE * 0.5 / Math.max(up, down);
+        if (up == 1 && down == 1)
+            cutoff = 0.5; // pass-through: the only non-zero tap is the center one
+
+        double[] h = new double[length];
+        for (int k = 0; k < length; k++) {
+            double d = k - center;
+            double sinc = d == 0 ? 1 : Math.sin(2 * Math.PI * cutoff * d) / (Math.PI * d * 2 * cutoff);
+            double w = 0.42 - 0.5 * Math.cos(2 * Math.PI * k / (length - 1))
+                    + 0.08 * Math.cos(4 * Math.PI * k / (length - 1));
+            h[k] = sinc * w;
+        }
+
+        int taps = (length + up - 1) / up;
+        phases = new double[up][taps];
+        for (int p = 0; p < up; p++) {
+            double sum = 0;
+            for (int k = 0; k < taps && p + k * up < length; k++) {
+                phases[p][k] = h[p + k * up];
+                sum += phases[p][k];
+            }
+            for (int k = 0; k < taps; k++)
+                phases[p][k] /= sum;
+        }
+        FILTER_CACHE.put(key, phases);
+        return phases;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
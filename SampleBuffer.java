@@ -0,0 +1,79 @@
+import java.util.Arrays;
+
+/**
+ * Growable structure-of-arrays container of accelerometer samples: timestamps in milliseconds
+ * and x/y/z values, each in its own primitive array (32 bytes per sample, no per-sample objects).
+ */
+public class SampleBuffer {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] t;
+    private double[] x;
+    private double[] y;
+    private double[] z;
+    private int size = 0;
+
+    public SampleBuffer() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public SampleBuffer(int capacity) {
+        capacity = Math.max(capacity, 16);
+        t = new long[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        z = new double[capacity];
+    }
+
+    public void add(long time, double xv, double yv, double zv) {
+        if (size == t.length)
+            ensureCapacity(size + 1);
+        t[size] = time;
+        x[size] = xv;
+        y[size] = yv;
+        z[size] = zv;
+        size++;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity <= t.length) return;
+        capacity = Math.max(capacity, t.length * 2);
+        t = Arrays.copyOf(t, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+    }
+
+    /*
+    * Marks the first size slots of the arrays as filled, after writing them directly
+    * */
+    void setSize(int size) {
+        ensureCapacity(size);
+        this.size = size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long[] getT() {
+        return t;
+    }
+
+    public double[] getX() {
+        return x;
+    }
+
+    public double[] getY() {
+        return y;
+    }
+
+    public double[] getZ() {
+        return z;
+    }
+}
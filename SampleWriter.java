@@ -0,0 +1,10 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of converted samples: timestamp in milliseconds and x/y/z in SI units.
+ */
+public interface SampleWriter extends Closeable {
+
+    void write(double t, double x, double y, double z) throws IOException;
+}
@@ -0,0 +1,59 @@
+/**
+ * Plain loop implementation of {@link MomentKernels}.
+ */
+public class ScalarMomentKernels implements MomentKernels {
+
+    static final ScalarMomentKernels INSTANCE = new ScalarMomentKernels();
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    @Override
+    public void magnitude(double[] x, double[] y, double[] z, double[] out, int n) {
+        for (int i = 0; i < n; i++)
+            out[i] = Math.sqrt(x[i] * x[i] + y[i] * y[i] + z[i] * z[i]);
+    }
+
+    @Override
+    public double sum(double[] a, int n) {
+        double sum = 0;
+        for (int i = 0; i < n; i++)
+            sum += a[i];
+        return sum;
+    }
+
+    @Override
+    public double sumOfSquares(double[] a, int n) {
+        double sum = 0;
+        for (int i = 0; i < n; i++)
+            sum += a[i] * a[i];
+        return sum;
+    }
+
+    @Override
+    public double sumOfSquaredDeviations(double[] a, int n, double mean) {
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            double d = a[i] - mean;
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    @Override
+    public void centralMoments(double[] a, int n, double mean, double[] out) {
+        double m2 = 0, m3 = 0, m4 = 0;
+        for (int i = 0; i < n; i++) {
+            double d = a[i] - mean;
+            double d2 = d * d;
+            m2 += d2;
+            m3 += d2 * d;
+            m4 += d2 * d2;
+        }
+        out[0] = m2;
+        out[1] = m3;
+        out[2] = m4;
+    }
+}
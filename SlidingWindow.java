@@ -0,0 +1,158 @@
+/**
+ * Windowing engine over a primitive t/x/y/z ring buffer (t in milliseconds).
+ * A window starts at a sample and closes at the first sample whose time is at least
+ * windowSize after the start (that sample included). The listener gets the closed window
+ * as a range of sample sequence numbers and reads the samples straight from the ring.
+ * <ul>
+ * <li>tumbling (hopSize >= windowSize): the next window starts after the closing sample</li>
+ * <li>hopping (hopSize < windowSize): the next window starts at the first sample at least
+ * hopSize after the current start, so consecutive windows overlap</li>
+ * </ul>
+ * Every sample is copied into the ring exactly once, however much the windows overlap.
+ */
+public class SlidingWindow {
+
+    public interface WindowListener {
+        /*
+        * start = sequence number of the first sample, end = one past the last sample
+        * */
+        void onWindow(SlidingWindow window, long start, long end);
+
+        /*
+        * Called for every sample that leaves the window, while it can still be read
+        * */
+        default void onEvict(SlidingWindow window, long seq) {
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final long windowSize;
+    private final long hopSize;
+    private final WindowListener listener;
+
+    private long[] t = new long[INITIAL_CAPACITY];
+    private double[] x = new double[INITIAL_CAPACITY];
+    private double[] y = new double[INITIAL_CAPACITY];
+    private double[] z = new double[INITIAL_CAPACITY];
+    private int mask = INITIAL_CAPACITY - 1;
+
+    private long start = 0; // first sample of the open window, nothing before it is retained
+    private long end = 0;   // sequence number of the next sample
+
+    public SlidingWindow(long windowSize, long hopSize, WindowListener listener) {
+        if (windowSize <= 0 || hopSize <= 0)
+            throw new IllegalArgumentException("windowSize and hopSize must be positive: " + windowSize + ", " + hopSize);
+        this.windowSize = windowSize;
+        this.hopSize = hopSize;
+        this.listener = listener;
+    }
+
+    public void add(long time, double xv, double yv, double zv) {
+        if (end - start > mask)
+            grow();
+        int i = (int) (end & mask);
+        t[i] = time;
+        x[i] = xv;
+        y[i] = yv;
+        z[i] = zv;
+        end++;
+
+        while (start < end && time - getT(start) >= windowSize) {
+            listener.onWindow(this, start, end);
+            evictUntil(nextStart());
+        }
+    }
+
+    public boolean isTumbling() {
+        return hopSize >= windowSize;
+    }
+
+    private long nextStart() {
+        if (isTumbling())
+            return end;
+        long from = getT(start) + hopSize;
+        long s = start + 1;
+        while (s < end && getT(s) < from)
+            s++;
+        return s;
+    }
+
+    private void grow() {
+        int capacity = (mask + 1) * 2;
+        long[] nt = new long[capacity];
+        double[] nx = new double[capacity];
+        double[] ny = new double[capacity];
+        double[] nz = new double[capacity];
+        int newMask = capacity - 1;
+        for (long s = start; s < end; s++) {
+            int from = (int) (s & mask);
+            int to = (int) (s & newMask);
+            nt[to] = t[from];
+            nx[to] = x[from];
+            ny[to] = y[from];
+            nz[to] = z[from];
+        }
+        t = nt;
+        x = nx;
+        y = ny;
+        z = nz;
+        mask = newMask;
+    }
+
+    /*
+    * Feeds samples [from, to) of the buffer in order
+    * */
+    public void addAll(SampleBuffer samples, int from, int to) {
+        long[] st = samples.getT();
+        double[] sx = samples.getX();
+        double[] sy = samples.getY();
+        double[] sz = samples.getZ();
+        for (int i = from; i < to; i++)
+            add(st[i], sx[i], sy[i], sz[i]);
+    }
+
+    /*
+    * Copies the x/y/z values of samples [from, to) into contiguous arrays, starting at index 0
+    * */
+    public void copyTo(long from, long to, double[] xs, double[] ys, double[] zs) {
+        int n = (int) (to - from);
+        int head = (int) (from & mask);
+        int first = Math.min(n, mask + 1 - head);
+        System.arraycopy(x, head, xs, 0, first);
+        System.arraycopy(y, head, ys, 0, first);
+        System.arraycopy(z, head, zs, 0, first);
+        System.arraycopy(x, 0, xs, first, n - first);
+        System.arraycopy(y, 0, ys, first, n - first);
+        System.arraycopy(z, 0, zs, first, n - first);
+    }
+
+    /*
+    * Drops the retained samples, e.g. between recordings
+    * */
+    public void reset() {
+        evictUntil(end);
+    }
+
+    private void evictUntil(long newStart) {
+        for (long s = start; s < newStart; s++)
+            listener.onEvict(this, s);
+        start = newStart;
+    }
+
+    public long getT(long seq) {
+        return t[(int) (seq & mask)];
+    }
+
+    public double getX(long seq) {
+        return x[(int) (seq & mask)];
+    }
+
+    public double getY(long seq) {
+        return y[(int) (seq & mask)];
+    }
+
+    public double getZ(long seq) {
+        return z[(int) (seq & mask)];
+    }
+}
@@ -882,6 +882,7 @@ public final class StatisticsMathUtil {
      * Computes rank of a value relative to a given sequence.
      * Missing elements in the sequence are ignored. Rank is 1-based.
      * Missing value is not ranked.
+     * Copies and sorts data on every call; use RankIndex to rank many values against the same data.
      *
      * @param value value to be ranked
      * @param data  array of data
@@ -916,7 +917,7 @@ public final class StatisticsMathUtil {
                 return 1.;
         }
 
-        Arrays.sort(ddd);
+        Arrays.sort(ddd, 0, n);
 
         rank = 1;
         while (ddd[n - rank] > value) {
@@ -981,29 +982,47 @@ public final class StatisticsMathUtil {
      * @result median of the sequence
      */
     public static double median(double[] data) {
-        int i, j, n = data.length;
-        int midIndex;
-        double median;
-        double[] ddd = new double[n];
+        return median(data.length, data, new double[data.length]);
+    }
 
-        j = 0;
-        for (i = 0; i < n; i++) {
-            ddd[j] = data[i];
-            j++;
-        }
-        n = j;
+    /**
+     * Computes median of a part of a sequence, e.g. of a reused scratch buffer
+     *
+     * @param size size to use
+     * @param data data array
+     * @result median of the subsequence
+     */
+    public static double median(int size, double[] data) {
+        return median(size, data, new double[Math.min(size, data.length)]);
+    }
 
+    /**
+     * Computes median of a part of a sequence, selecting in the given scratch buffer
+     * (OrderStatistics, expected O(n)); data is not modified
+     *
+     * @param size    size to use
+     * @param data    data array
+     * @param scratch buffer of at least size elements, overwritten
+     * @result median of the subsequence
+     */
+    public static double median(int size, double[] data, double[] scratch) {
+        int n = Math.min(size, data.length);
         if (n == 0)
             return 0;
 
-        Arrays.sort(ddd, 0, n - 1);
+        System.arraycopy(data, 0, scratch, 0, n);
+        return medianInPlace(scratch, n);
+    }
 
-        midIndex = n / 2;
+    /*
+    * Median of a[0, n), n > 0; reorders a
+    * */
+    private static double medianInPlace(double[] a, int n) {
+        int midIndex = n / 2;
+        double median = OrderStatistics.select(a, 0, n, midIndex);
         if (n % 2 == 0) {
         /* Average of the two middle numbers */
-            median = (ddd[midIndex] + ddd[midIndex - 1]) / 2;
-        } else {
-            median = ddd[midIndex];
+            median = (median + OrderStatistics.max(a, 0, midIndex)) / 2;
         }
         return median;
     }
@@ -1016,41 +1035,12 @@ public final class StatisticsMathUtil {
      * @result percentile of the sequence
      */
     public static double percentile(double percent, double[] data) {
-        int i, j, n = data.length;
-        int midIndex;
-        double median, temp;
-        double[] ddd = new double[n];
-
-        j = 0;
-        for (i = 0; i < n; i++) {
-            ddd[j] = data[i];
-            j++;
-        }
-        n = j;
-
+        int n = data.length;
         if (n == 0)
             return 0;
 
-        Arrays.sort(ddd, 0, n - 1);
-
-        if (percent == 0.)
-            return ddd[0];
-
-        if (percent == 1.)
-            return ddd[n - 1];
-
-        temp = percent * (double) n;
-        median = Math.floor(temp);
-        midIndex = (int) median;
-
-        if (median != temp) {
-            temp -= median;
-            median = ddd[midIndex - 1];
-            median += (ddd[midIndex] - median) * temp;
-        } else {
-            median = ddd[midIndex];
-        }
-        return median;
+        double[] ddd = Arrays.copyOf(data, n);
+        return percentileInPlace(percent, ddd, n);
     }
 
     /**
@@ -1062,48 +1052,137 @@ public final class StatisticsMathUtil {
      * @result percentile of the subsequence
      */
     public static double percentile(double percent, int size, double[] data) {
-        int i, j, n = data.length;
-        if (n > size)
-            n = size;
-        int midIndex;
-        double median, temp;
-        double[] ddd = new double[n];
+        return percentile(percent, size, data, new double[Math.min(size, data.length)]);
+    }
 
-        j = 0;
-        for (i = 0; i < n; i++) {
+    /**
+     * Computes percentile of a part of a sequence, selecting in the given scratch buffer
+     * (OrderStatistics, expected O(n)); data is not modified. Missing values are ignored
+     *
+     * @param percent percent value
+     * @param size    size to use
+     * @param data    data array
+     * @param scratch buffer of at least size elements, overwritten
+     * @result percentile of the subsequence
+     */
+    public static double percentile(double percent, int size, double[] data, double[] scratch) {
+        int n = Math.min(size, data.length);
+        int j = 0;
+        for (int i = 0; i < n; i++) {
             if (data[i] != MISSG) {
-                ddd[j] = data[i];
+                scratch[j] = data[i];
                 j++;
             }
         }
-
-        n = j;
-
-        if (n == 0)
+        if (j == 0)
             return MISSG;
+        return percentileInPlace(percent, scratch, j);
+    }
 
-        Arrays.sort(ddd, 0, n - 1);
-
+    /*
+    * Percentile of a[0, n), n > 0, interpolated between the values of sorted rank
+    * floor(percent * n) and the one below it; reorders a
+    * */
+    private static double percentileInPlace(double percent, double[] a, int n) {
         if (percent == 0.)
-            return ddd[0];
+            return OrderStatistics.min(a, 0, n);
 
         if (percent == 1.)
-            return ddd[n - 1];
-
-        temp = percent * (double) n;
-        median = Math.floor(temp);
-        midIndex = (int) median;
-
-        if (median != temp) {
-            temp -= median;
-            median = ddd[midIndex - 1];
-            median += (ddd[midIndex] - median) * temp;
-        } else {
-            median = ddd[midIndex];
+            return OrderStatistics.max(a, 0, n);
+
+        double temp = percent * (double) n;
+        double floor = Math.floor(temp);
+        int midIndex = (int) floor;
+
+        double median = OrderStatistics.select(a, 0, n, midIndex);
+        if (floor != temp && midIndex > 0) {
+            double lower = OrderStatistics.max(a, 0, midIndex);
+            median = lower + (median - lower) * (temp - floor);
         }
         return median;
     }
 
+    /**
+     * Computes several percentiles of a sequence in one multi-select pass
+     * (same definition as percentile). Missing values are ignored
+     *
+     * @param percents percent values, in any order
+     * @param data     data array
+     * @result percentiles, in the order of percents
+     */
+    public static double[] percentiles(double[] percents, double[] data) {
+        double[] out = new double[percents.length];
+        percentiles(percents, data.length, data, new double[data.length], new int[2 * percents.length], out);
+        return out;
+    }
+
+    /**
+     * Computes several percentiles of a part of a sequence in one multi-select pass over the
+     * scratch buffer, without allocating; data is not modified. Missing values are ignored;
+     * all results are MISSG when nothing remains
+     *
+     * @param percents percent values, in any order
+     * @param size     size to use
+     * @param data     data array
+     * @param scratch  buffer of at least size elements, overwritten
+     * @param ranks    buffer of at least 2 * percents.length ints, overwritten
+     * @param out      receives the percentiles, in the order of percents
+     */
+    public static void percentiles(double[] percents, int size, double[] data, double[] scratch, int[] ranks, double[] out) {
+        int n = Math.min(size, data.length);
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            if (data[i] != MISSG) {
+                scratch[j] = data[i];
+                j++;
+            }
+        }
+        n = j;
+        if (n == 0) {
+            Arrays.fill(out, 0, percents.length, MISSG);
+            return;
+        }
+
+        // every percentile reads sorted rank floor(percent * n) and, when interpolating, the one below
+        int r = 0;
+        for (double percent : percents) {
+            if (!(percent >= 0. && percent <= 1.))
+                throw new IllegalArgumentException("percent must be in [0, 1]: " + percent);
+            if (percent == 0.) {
+                ranks[r++] = 0;
+            } else if (percent == 1.) {
+                ranks[r++] = n - 1;
+            } else {
+                double temp = percent * (double) n;
+                int midIndex = (int) Math.floor(temp);
+                ranks[r++] = midIndex;
+                if (midIndex != temp && midIndex > 0)
+                    ranks[r++] = midIndex - 1;
+            }
+        }
+        Arrays.sort(ranks, 0, r);
+        OrderStatistics.selectAll(scratch, 0, n, ranks, 0, r);
+
+        for (int i = 0; i < percents.length; i++) {
+            double percent = percents[i];
+            if (percent == 0.) {
+                out[i] = scratch[0];
+            } else if (percent == 1.) {
+                out[i] = scratch[n - 1];
+            } else {
+                double temp = percent * (double) n;
+                double floor = Math.floor(temp);
+                int midIndex = (int) floor;
+                double median = scratch[midIndex];
+                if (floor != temp && midIndex > 0) {
+                    double lower = scratch[midIndex - 1];
+                    median = lower + (median - lower) * (temp - floor);
+                }
+                out[i] = median;
+            }
+        }
+    }
+
     /**
      * Computes quartile of a sequence. Missing values are ignored
      *
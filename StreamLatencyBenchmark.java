@@ -0,0 +1,75 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Per-sample latency of FeatureStream.onSample on a synthetic 3-axis stream: percentiles of the
+ * time from pushing a sample to returning (including the feature computation and the listener
+ * call when the sample closes a window) and the bytes allocated during the measured part.
+ * Usage: StreamLatencyBenchmark [windowMs] [hopMs] [rateHz] [samples] [all|default]
+ */
+public class StreamLatencyBenchmark {
+
+    public static void main(String[] args) {
+        long windowSize = args.length > 0 ? Long.parseLong(args[0]) : 10 * 1000;
+        long hopSize = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        int rate = args.length > 2 ? Integer.parseInt(args[2]) : Config.STREAM_SAMPLING_RATE;
+        int samples = args.length > 3 ? Integer.parseInt(args[3]) : 2000000;
+        boolean all = args.length <= 4 || !args[4].equals("default");
+
+        FeaturePlan plan = new FeaturePlan(all ? FeatureRegistry.getNames() : FeatureRegistry.DEFAULT_FEATURES);
+        final double[] sink = new double[1];
+        FeatureStream stream = new FeatureStream(windowSize, hopSize, plan, new FeatureStream.Listener() {
+            @Override
+            public void onFeatures(long startTime, long endTime, double[] features, String activityLabel) {
+                sink[0] += features[0];
+            }
+        });
+
+        Random random = new Random(7);
+        long[] t = new long[samples];
+        double[] x = new double[samples];
+        double[] y = new double[samples];
+        double[] z = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            t[i] = i * 1000L / rate;
+            x[i] = Math.sin(i * 0.7) + random.nextGaussian() * 0.1;
+            y[i] = Math.cos(i * 0.3) + random.nextGaussian() * 0.1;
+            z[i] = 9.81 + random.nextGaussian() * 0.2;
+        }
+
+        int warmup = samples / 4;
+        for (int i = 0; i < warmup; i++)
+            stream.onSample(t[i], x[i], y[i], z[i]);
+
+        int measured = samples - warmup;
+        long[] latency = new long[measured];
+        long windowsBefore = stream.getWindowCount();
+        long allocatedBefore = allocatedBytes();
+        for (int i = 0; i < measured; i++) {
+            int s = warmup + i;
+            long start = System.nanoTime();
+            stream.onSample(t[s], x[s], y[s], z[s]);
+            latency[i] = System.nanoTime() - start;
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+        long windows = stream.getWindowCount() - windowsBefore;
+
+        Arrays.sort(latency);
+        System.out.println(plan.getFeatures().size() + " features, window " + windowSize + " ms, hop " + hopSize
+                + " ms, " + rate + " Hz, " + measured + " samples measured, " + windows + " windows");
+        System.out.println("p50   " + latency[(int) (measured * 0.50)] + " ns");
+        System.out.println("p99   " + latency[(int) (measured * 0.99)] + " ns");
+        System.out.println("p99.9 " + latency[(int) (measured * 0.999)] + " ns");
+        System.out.println("max   " + latency[measured - 1] + " ns");
+        System.out.println("allocated " + (allocated < 0 ? "n/a" : allocated + " bytes") + " (" + sink[0] + ")");
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return -1;
+    }
+}
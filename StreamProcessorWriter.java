@@ -0,0 +1,93 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes one converted recording in stream-processor format.
+ * The four per-recording outputs (accelx, accely, accelz and accelxyz) are opened
+ * once, written through large buffers and flushed/closed when the recording ends.
+ * Timestamps are written as whole milliseconds.
+ */
+public class StreamProcessorWriter implements SampleWriter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer xWriter;
+    private final Writer yWriter;
+    private final Writer zWriter;
+    private final Writer xyzWriter;
+
+    /*
+    * dir = output directory of one recording, must already exist
+    * */
+    public StreamProcessorWriter(String dir) throws IOException {
+        String[] names = {"right-wrist-accelx.csv", "right-wrist-accely.csv", "right-wrist-accelz.csv",
+                "right-wrist-accelxyz.csv"};
+        Writer[] writers = new Writer[names.length];
+        try {
+            for (int i = 0; i < names.length; i++)
+                writers[i] = open(dir + names[i]);
+        } catch (IOException e) {
+            // close the ones already opened
+            for (Writer w : writers) {
+                if (w == null) break;
+                try {
+                    w.close();
+                } catch (IOException closeError) {
+                    e.addSuppressed(closeError);
+                }
+            }
+            throw e;
+        }
+        this.xWriter = writers[0];
+        this.yWriter = writers[1];
+        this.zWriter = writers[2];
+        this.xyzWriter = writers[3];
+    }
+
+    private static Writer open(String fileName) throws IOException {
+        return new BufferedWriter(new FileWriter(fileName), BUFFER_SIZE);
+    }
+
+    @Override
+    public void write(double t, double x, double y, double z) throws IOException {
+        String time = Integer.toString((int) t);
+        String xs = Double.toString(x);
+        String ys = Double.toString(y);
+        String zs = Double.toString(z);
+
+        writeLine(xWriter, time, xs);
+        writeLine(yWriter, time, ys);
+        writeLine(zWriter, time, zs);
+
+        xyzWriter.write(time);
+        xyzWriter.write(',');
+        xyzWriter.write(xs);
+        xyzWriter.write(',');
+        xyzWriter.write(ys);
+        xyzWriter.write(',');
+        xyzWriter.write(zs);
+        xyzWriter.write('\n');
+    }
+
+    private static void writeLine(Writer w, String time, String value) throws IOException {
+        w.write(time);
+        w.write(',');
+        w.write(value);
+        w.write('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+        for (Writer w : new Writer[]{xWriter, yWriter, zWriter, xyzWriter}) {
+            try {
+                w.close();
+            } catch (IOException e) {
+                if (error == null) error = e;
+            }
+        }
+        if (error != null) throw error;
+    }
+}
@@ -0,0 +1,360 @@
+/**
+ * Intermediates of one window, computed for a FeaturePlan in a single pass over the window:
+ * magnitude mean and central moments M2..M4 (online updates, Terriberry), M2 of x/y/z (Welford),
+ * the summed rate of change and the window's magnitudes, and from those the power spectrum of the
+ * magnitudes. Only what the plan needs is computed.
+ * With overlapping windows the magnitudes are also kept in an order-statistic tree that follows
+ * the window, so the order statistics do not need a sort per window.
+ * With Config.USE_VECTOR_KERNELS the window is copied to contiguous arrays and magnitudes and
+ * moments are computed by MomentKernels (two-pass moments) instead.
+ * The feature formulas are those of StatisticsMathUtil stdev/skew/kurt/median.
+ * Buffers only grow, so a long-running instance allocates nothing once they reached the window size.
+ * One instance per recording or stream; not thread safe.
+ */
+public class WindowStats {
+
+    private final boolean storeMagnitudes;
+    private final boolean moments;
+    private final boolean axisMoments;
+    private final boolean diffs;
+    private final boolean magnitudes;
+    private final boolean spectrum;
+    private final OrderStatisticTree magTree;
+    private final MomentKernels kernels = Config.USE_VECTOR_KERNELS ? MomentKernels.get() : null;
+    private long treeEnd = 0;
+
+    private double[] mag = new double[64];
+    private double[] sorted = new double[0];
+
+    // magnitude percentiles of the quantile features, computed together on first use per window
+    static final double[] QUANTILE_LEVELS = {0.10, 0.25, 0.75, 0.90};
+    private final double[] quantiles = new double[QUANTILE_LEVELS.length];
+    private final int[] quantileRanks = new int[2 * QUANTILE_LEVELS.length];
+    private boolean quantilesValid = false;
+    private int n;
+    private double mean, m2, m3, m4;
+    private double m2X, m2Y, m2Z;
+    private double roc;
+
+    // kernel path scratch buffers
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private double[] zs = new double[0];
+    private final double[] centralMoments = new double[3];
+
+    // spectrum scratch buffers, reused across windows
+    private double[] fftRe = new double[64];
+    private double[] fftIm = new double[64];
+    private FFT fft;
+    private double[] hann = new double[0];
+    private double dominantFrequency, spectralEnergy, bandPowerLow, bandPowerHigh, spectralEntropy;
+
+    private static final double BAND_SPLIT_HZ = 3;
+    private static final double BAND_MAX_HZ = 8;
+
+    public WindowStats(FeaturePlan plan, boolean overlapping) {
+        boolean orderStatistics = plan.needs(Feature.Intermediate.ORDER_STATISTICS);
+        this.magTree = orderStatistics && overlapping ? new OrderStatisticTree() : null;
+        this.spectrum = plan.needs(Feature.Intermediate.SPECTRUM);
+        this.storeMagnitudes = plan.needs(Feature.Intermediate.MAGNITUDE) || spectrum || (orderStatistics && magTree == null);
+        this.moments = plan.needs(Feature.Intermediate.MOMENTS);
+        this.axisMoments = plan.needs(Feature.Intermediate.AXIS_MOMENTS);
+        this.diffs = plan.needs(Feature.Intermediate.DIFFS);
+        this.magnitudes = storeMagnitudes || moments || diffs;
+    }
+
+    /*
+    * Computes the intermediates of the window [start, end) of the ring
+    * */
+    public void update(SlidingWindow data, long start, long end) {
+        if (magTree != null) {
+            for (; treeEnd < end; treeEnd++)
+                magTree.insert(magnitude(data.getX(treeEnd), data.getY(treeEnd), data.getZ(treeEnd)));
+        }
+        n = (int) (end - start);
+        quantilesValid = false;
+        if ((storeMagnitudes || kernels != null) && mag.length < n)
+            mag = new double[n * 2];
+
+        if (kernels != null)
+            updateWithKernels(data, start, end);
+        else
+            updateScalar(data, start, end);
+
+        if (spectrum)
+            computeSpectrum(data.getT(start), data.getT(end - 1));
+    }
+
+    private void updateScalar(SlidingWindow data, long start, long end) {
+
+        double mean = 0, m2 = 0, m3 = 0, m4 = 0;
+        double meanX = 0, m2X = 0;
+        double meanY = 0, m2Y = 0;
+        double meanZ = 0, m2Z = 0;
+        double roc = 0;
+        double prevT = 0, prevMag = 0;
+
+        for (int i = 0; i < n; i++) {
+            long s = start + i;
+            double x = data.getX(s);
+            double y = data.getY(s);
+            double z = data.getZ(s);
+            int k = i + 1;
+
+            if (magnitudes) {
+                double m = magnitude(x, y, z);
+                if (storeMagnitudes)
+                    mag[i] = m;
+
+                if (moments) {
+                    double delta = m - mean;
+                    double deltaN = delta / k;
+                    double deltaN2 = deltaN * deltaN;
+                    double term1 = delta * deltaN * i;
+                    mean += deltaN;
+                    m4 += term1 * deltaN2 * ((double) k * k - 3 * k + 3) + 6 * deltaN2 * m2 - 4 * deltaN * m3;
+                    m3 += term1 * deltaN * (k - 2) - 3 * deltaN * m2;
+                    m2 += term1;
+                }
+
+                if (diffs) {
+                    double t = data.getT(s);
+                    if (i > 0)
+                        roc += (m - prevMag) / (t - prevT);
+                    prevT = t;
+                    prevMag = m;
+                }
+            }
+
+            if (axisMoments) {
+                double dx = x - meanX;
+                meanX += dx / k;
+                m2X += dx * (x - meanX);
+                double dy = y - meanY;
+                meanY += dy / k;
+                m2Y += dy * (y - meanY);
+                double dz = z - meanZ;
+                meanZ += dz / k;
+                m2Z += dz * (z - meanZ);
+            }
+        }
+
+        this.mean = mean;
+        this.m2 = m2;
+        this.m3 = m3;
+        this.m4 = m4;
+        this.m2X = m2X;
+        this.m2Y = m2Y;
+        this.m2Z = m2Z;
+        this.roc = roc;
+    }
+
+    private void updateWithKernels(SlidingWindow data, long start, long end) {
+        if (xs.length < n) {
+            xs = new double[n * 2];
+            ys = new double[n * 2];
+            zs = new double[n * 2];
+        }
+        data.copyTo(start, end, xs, ys, zs);
+
+        if (magnitudes)
+            kernels.magnitude(xs, ys, zs, mag, n);
+
+        if (moments) {
+            mean = kernels.sum(mag, n) / n;
+            kernels.centralMoments(mag, n, mean, centralMoments);
+            m2 = centralMoments[0];
+            m3 = centralMoments[1];
+            m4 = centralMoments[2];
+        }
+
+        if (axisMoments) {
+            m2X = kernels.sumOfSquaredDeviations(xs, n, kernels.sum(xs, n) / n);
+            m2Y = kernels.sumOfSquaredDeviations(ys, n, kernels.sum(ys, n) / n);
+            m2Z = kernels.sumOfSquaredDeviations(zs, n, kernels.sum(zs, n) / n);
+        }
+
+        if (diffs) {
+            double roc = 0;
+            for (int i = 1; i < n; i++)
+                roc += (mag[i] - mag[i - 1]) / ((double) data.getT(start + i) - data.getT(start + i - 1));
+            this.roc = roc;
+        }
+    }
+
+    /*
+    * One-sided power spectrum of the Hann-windowed, mean-removed magnitudes, zero padded to a
+    * power of two. The sampling rate is estimated from the window's timestamps. Power of bin k
+    * (1 <= k <= N/2) is |X_k|^2 / N; the DC bin is left out. Entropy is the Shannon entropy of
+    * the normalized power over those bins divided by ln(N/2), so it lies in [0, 1].
+    * */
+    private void computeSpectrum(long firstT, long lastT) {
+        dominantFrequency = spectralEnergy = bandPowerLow = bandPowerHigh = spectralEntropy = 0;
+        if (n < 2 || lastT <= firstT)
+            return;
+
+        double rate = (n - 1) * 1000.0 / (lastT - firstT);
+        if (fft == null || fft.getSize() != FFT.sizeFor(n))
+            fft = FFT.plan(FFT.sizeFor(n));
+        if (hann.length != n)
+            hann = FFT.hann(n);
+        int size = fft.getSize();
+        if (fftRe.length < size) {
+            fftRe = new double[size];
+            fftIm = new double[size];
+        }
+
+        double sum = 0;
+        for (int i = 0; i < n; i++)
+            sum += mag[i];
+        double avg = sum / n;
+        for (int i = 0; i < n; i++) {
+            fftRe[i] = (mag[i] - avg) * hann[i];
+            fftIm[i] = 0;
+        }
+        for (int i = n; i < size; i++) {
+            fftRe[i] = 0;
+            fftIm[i] = 0;
+        }
+        fft.transform(fftRe, fftIm);
+
+        int bins = size / 2;
+        double binHz = rate / size;
+        double maxPower = 0;
+        for (int k = 1; k <= bins; k++) {
+            double power = (fftRe[k] * fftRe[k] + fftIm[k] * fftIm[k]) / size;
+            fftRe[k] = power;
+            spectralEnergy += power;
+            double hz = k * binHz;
+            if (hz <= BAND_SPLIT_HZ)
+                bandPowerLow += power;
+            else if (hz <= BAND_MAX_HZ)
+                bandPowerHigh += power;
+            if (power > maxPower) {
+                maxPower = power;
+                dominantFrequency = hz;
+            }
+        }
+
+        if (spectralEnergy > 0 && bins > 1) {
+            double entropy = 0;
+            for (int k = 1; k <= bins; k++) {
+                double p = fftRe[k] / spectralEnergy;
+                if (p > 0)
+                    entropy -= p * Math.log(p);
+            }
+            spectralEntropy = entropy / Math.log(bins);
+        }
+    }
+
+    /*
+    * Called for every sample that leaves the window
+    * */
+    public void evict(SlidingWindow data, long seq) {
+        if (magTree != null && seq < treeEnd)
+            magTree.remove(magnitude(data.getX(seq), data.getY(seq), data.getZ(seq)));
+    }
+
+    public int size() {
+        return n;
+    }
+
+    /*
+    * Magnitudes of the window; valid for the first size() entries when MAGNITUDE is planned
+    * */
+    public double[] getMagnitudes() {
+        return mag;
+    }
+
+    public double mean() {
+        return mean;
+    }
+
+    public double median() {
+        if (magTree != null)
+            return magTree.median();
+        if (sorted.length < n)
+            sorted = new double[mag.length];
+        return StatisticsMathUtil.median(n, mag, sorted);
+    }
+
+    /*
+    * Magnitude percentile QUANTILE_LEVELS[level] (StatisticsMathUtil.percentile definition)
+    * */
+    public double quantile(int level) {
+        if (magTree != null)
+            return magTree.percentile(QUANTILE_LEVELS[level]);
+        if (!quantilesValid) {
+            if (sorted.length < n)
+                sorted = new double[mag.length];
+            StatisticsMathUtil.percentiles(QUANTILE_LEVELS, n, mag, sorted, quantileRanks, quantiles);
+            quantilesValid = true;
+        }
+        return quantiles[level];
+    }
+
+    public double sd() {
+        return sampleStdev(m2, n);
+    }
+
+    public double sdX() {
+        return sampleStdev(m2X, n);
+    }
+
+    public double sdY() {
+        return sampleStdev(m2Y, n);
+    }
+
+    public double sdZ() {
+        return sampleStdev(m2Z, n);
+    }
+
+    public double skew() {
+        double sd = sd();
+        if (n < 3 || sd == 0)
+            return 0;
+        return m3 / (sd * sd * sd) * n / ((n - 1.0) * (n - 2.0));
+    }
+
+    public double kurt() {
+        double sd = sd();
+        if (n < 4 || sd == 0)
+            return 0;
+        double kurt = m4 / (sd * sd * sd * sd) * n * (n + 1.0) / (n - 1.0) - 3 * (n - 1.0) * (n - 1.0);
+        return kurt / ((n - 2.0) * (n - 3.0));
+    }
+
+    public double rateOfChange() {
+        return roc / (n - 1);
+    }
+
+    public double dominantFrequency() {
+        return dominantFrequency;
+    }
+
+    public double spectralEnergy() {
+        return spectralEnergy;
+    }
+
+    public double bandPowerLow() {
+        return bandPowerLow;
+    }
+
+    public double bandPowerHigh() {
+        return bandPowerHigh;
+    }
+
+    public double spectralEntropy() {
+        return spectralEntropy;
+    }
+
+    private static double sampleStdev(double m2, int n) {
+        if (n < 2)
+            return 0;
+        return Math.sqrt(m2 / (n - 1));
+    }
+
+    static double magnitude(double x, double y, double z) {
+        return Math.sqrt(x * x + y * y + z * z);
+    }
+}
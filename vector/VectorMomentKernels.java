@@ -0,0 +1,106 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation of {@link MomentKernels} on jdk.incubator.vector, with scalar tails.
+ * Kept out of the main source directory because it needs the incubator module to compile:
+ * <pre>
+ * javac --add-modules jdk.incubator.vector -cp out -d out vector/VectorMomentKernels.java
+ * java --add-modules jdk.incubator.vector -cp out Main
+ * </pre>
+ * magnitude gives the same values as the scalar kernel; the reductions sum in a different
+ * order and may differ from it in the last bits.
+ */
+public class VectorMomentKernels implements MomentKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public String getName() {
+        return "vector(" + SPECIES.length() + " lanes)";
+    }
+
+    @Override
+    public void magnitude(double[] x, double[] y, double[] z, double[] out, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, x, i);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, y, i);
+            DoubleVector vz = DoubleVector.fromArray(SPECIES, z, i);
+            vx.mul(vx).add(vy.mul(vy)).add(vz.mul(vz)).sqrt().intoArray(out, i);
+        }
+        for (; i < n; i++)
+            out[i] = Math.sqrt(x[i] * x[i] + y[i] * y[i] + z[i] * z[i]);
+    }
+
+    @Override
+    public double sum(double[] a, int n) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length())
+            acc = acc.add(DoubleVector.fromArray(SPECIES, a, i));
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++)
+            sum += a[i];
+        return sum;
+    }
+
+    @Override
+    public double sumOfSquares(double[] a, int n) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, a, i);
+            acc = acc.add(v.mul(v));
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++)
+            sum += a[i] * a[i];
+        return sum;
+    }
+
+    @Override
+    public double sumOfSquaredDeviations(double[] a, int n, double mean) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector d = DoubleVector.fromArray(SPECIES, a, i).sub(mean);
+            acc = acc.add(d.mul(d));
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            double d = a[i] - mean;
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    @Override
+    public void centralMoments(double[] a, int n, double mean, double[] out) {
+        DoubleVector acc2 = DoubleVector.zero(SPECIES);
+        DoubleVector acc3 = DoubleVector.zero(SPECIES);
+        DoubleVector acc4 = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector d = DoubleVector.fromArray(SPECIES, a, i).sub(mean);
+            DoubleVector d2 = d.mul(d);
+            acc2 = acc2.add(d2);
+            acc3 = acc3.add(d2.mul(d));
+            acc4 = acc4.add(d2.mul(d2));
+        }
+        double m2 = acc2.reduceLanes(VectorOperators.ADD);
+        double m3 = acc3.reduceLanes(VectorOperators.ADD);
+        double m4 = acc4.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            double d = a[i] - mean;
+            double d2 = d * d;
+            m2 += d2;
+            m3 += d2 * d;
+            m4 += d2 * d2;
+        }
+        out[0] = m2;
+        out[1] = m3;
+        out[2] = m4;
+    }
+}